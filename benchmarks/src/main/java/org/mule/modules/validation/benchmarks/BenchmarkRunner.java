@@ -0,0 +1,65 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks twice: once for the throughput of each processor, in operations per second, and once for the
+ * distribution of the time per operation, in nanoseconds. Both runs report the bytes allocated per operation.
+ * <p/>
+ * The usual JMH command line options, such as a benchmark name pattern or <code>-p valid=false</code>, are applied to
+ * both runs. Without a name pattern every benchmark of {@link ValidationModuleBenchmark} runs. A time unit given with
+ * <code>-tu</code> replaces the default unit of both runs, and modes given with <code>-bm</code> replace the two runs
+ * with a single one in those modes.
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        if (commandLine.getBenchModes().hasValue()) {
+            new Runner(options(commandLine).build()).run();
+            return;
+        }
+
+        new Runner(options(commandLine)
+                .mode(Mode.Throughput)
+                .timeUnit(commandLine.getTimeUnit().orElse(TimeUnit.SECONDS))
+                .build()).run();
+
+        new Runner(options(commandLine)
+                .mode(Mode.SampleTime)
+                .timeUnit(commandLine.getTimeUnit().orElse(TimeUnit.NANOSECONDS))
+                .build()).run();
+    }
+
+    private static ChainedOptionsBuilder options(CommandLineOptions commandLine) {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(ValidationModuleBenchmark.class.getSimpleName());
+        }
+        return options;
+    }
+}
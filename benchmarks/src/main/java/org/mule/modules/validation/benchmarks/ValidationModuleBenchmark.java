@@ -0,0 +1,599 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation.benchmarks;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleContext;
+import org.mule.api.MuleMessage;
+import org.mule.context.DefaultMuleContextFactory;
+import org.mule.modules.validation.CheckDigitScheme;
+import org.mule.modules.validation.CreditCardType;
+import org.mule.modules.validation.IpVersion;
+import org.mule.modules.validation.Locale;
+import org.mule.modules.validation.MembershipListBuilder;
+import org.mule.modules.validation.ValidationModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every processor of {@link ValidationModule} invoked directly, without a flow, for valid and invalid
+ * inputs and for each way of reporting an invalid value.
+ * <p/>
+ * Each benchmark returns what the processor returned or threw, so that neither the validation nor the exception is
+ * optimized away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationModuleBenchmark {
+    /**
+     * How an invalid value is reported.
+     */
+    public enum FailureMode {
+        /**
+         * An {@link org.mule.modules.validation.InvalidException} with a stack trace is thrown
+         */
+        THROW,
+        /**
+         * A stackless {@link org.mule.modules.validation.InvalidException} is thrown
+         */
+        STACKLESS,
+        /**
+         * The outcome is stored in a flow variable
+         */
+        VERDICT
+    }
+
+    private static final List<String> REGEXS = Collections.unmodifiableList(Arrays.asList(
+            "^[ABCEGHJKLMNPRSTVXY]{1}\\d{1}[A-Z]{1} *\\d{1}[A-Z]{1}\\d{1}$",
+            "^\\d{5}(-\\d{4})?"));
+
+    private static final List<String> SKU_REGEXS = skuRegexs(60);
+
+    private static final List<CreditCardType> CARD_TYPES = Collections.unmodifiableList(Arrays.asList(CreditCardType.MASTERCARD, CreditCardType.VISA));
+
+    private static final List<String> RULES = Collections.unmodifiableList(Arrays.asList(
+            "payload[0] => email",
+            "payload[1] => length(1,64)",
+            "payload[2] => long(1,100)"));
+
+    private static final List<String> FIELD_RULES = Collections.unmodifiableList(Arrays.asList(
+            "customer.email => email",
+            "name => length(1,64)",
+            "quantity => long(1,100)"));
+
+    private static final List<String> RECORD_RULES = Collections.unmodifiableList(Arrays.asList(
+            "0 => long(1,)",
+            "1 => email"));
+
+    private static final String EXCEPTION = "org.mule.modules.validation.InvalidException";
+
+    @Param({"true", "false"})
+    public boolean valid;
+
+    @Param({"THROW", "STACKLESS", "VERDICT"})
+    public FailureMode failureMode;
+
+    private MuleContext muleContext;
+    private ValidationModule module;
+    private File membershipEntries;
+    private File membershipFile;
+    private String verdictVariable;
+    private String resultVariable;
+
+    private String domain;
+    private String topLevelDomain;
+    private String countryCode;
+    private String creditCardNumber;
+    private String ean13;
+    private String iban;
+    private String emailAddress;
+    private String ipAddress;
+    private String percentage;
+    private String isbn10;
+    private String isbn13;
+    private String url;
+    private String time;
+    private String date;
+    private String timestamp;
+    private String postalCode;
+    private String sku;
+    private String integralNumber;
+    private String decimalNumber;
+    private Object notEmpty;
+    private String name;
+    private List<String> order;
+    private Map<String, Object> fields;
+    private String account;
+    private List<String> emails;
+    private byte[] records;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        muleContext = new DefaultMuleContextFactory().createMuleContext();
+        muleContext.start();
+
+        List<String> accounts = new ArrayList<String>(100000);
+        for (int i = 0; i < 100000; i++) {
+            accounts.add("ACC-" + i);
+        }
+        membershipEntries = File.createTempFile("accounts", ".txt");
+        membershipFile = File.createTempFile("accounts", ".idx");
+        Files.write(membershipEntries.toPath(), accounts, Charset.forName("UTF-8"));
+        MembershipListBuilder.build(membershipEntries, membershipFile, false);
+
+        module = new ValidationModule();
+        module.setStacklessExceptions(failureMode == FailureMode.STACKLESS);
+        module.setMembershipLists(Collections.singletonMap("accounts", membershipFile.getPath()));
+        module.start();
+
+        verdictVariable = failureMode == FailureMode.VERDICT ? "verdict" : null;
+        resultVariable = failureMode == FailureMode.VERDICT ? "result" : null;
+
+        domain = valid ? "mulesoft.com" : "xxx.yy";
+        topLevelDomain = valid ? "com" : "abc";
+        countryCode = valid ? "uk" : "xx";
+        creditCardNumber = valid ? "5555555555554444" : "5555444433332222";
+        ean13 = valid ? "4006381333931" : "4006381333932";
+        iban = valid ? "GB82 WEST 1234 5698 7654 32" : "GB82 WEST 1234 5698 7654 33";
+        emailAddress = valid ? "john.doe@mulesoft.com" : "john.xx@.com";
+        ipAddress = valid ? "127.0.0.1" : "127.0.0";
+        percentage = valid ? "30.2%" : "XX%";
+        isbn10 = valid ? "0306406152" : "343-34";
+        isbn13 = valid ? "9780306406157" : "343-34";
+        url = valid ? "http://www.mulesoft.com/products" : "http://localhost:8080";
+        time = valid ? "6:34 PM" : "6:34PM";
+        date = valid ? "07/04/2010" : "13/04/2010";
+        timestamp = valid ? "2010-07-04T18:34:05.123+02:00" : "2010-02-29T18:34:05.123+02:00";
+        postalCode = valid ? "94105-0011" : "94105-DD";
+        sku = valid ? "SKU-59-ABC1234" : "SKU-59-ABC123";
+        integralNumber = valid ? "1234567" : "1234x";
+        decimalNumber = valid ? "3.14" : "3.1x";
+        notEmpty = valid ? "payload" : "";
+        name = valid ? "john.doe" : "john";
+        order = Arrays.asList(emailAddress, name, valid ? "42" : "420");
+        account = valid ? "ACC-4242" : "ACC-424242";
+
+        fields = new HashMap<String, Object>();
+        fields.put("customer", Collections.singletonMap("email", emailAddress));
+        fields.put("name", name);
+        fields.put("quantity", valid ? "42" : "420");
+
+        emails = new ArrayList<String>(10000);
+        for (int i = 0; i < 10000; i++) {
+            emails.add(valid || i % 10 != 0 ? "john.doe" + i + "@mulesoft.com" : "john.doe" + i + "@.com");
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append(valid || i % 10 != 0 ? i + 1 : -i).append(',').append("john.doe").append(i).append("@mulesoft.com\n");
+        }
+        records = builder.toString().getBytes("UTF-8");
+    }
+
+    private static List<String> skuRegexs(int count) {
+        List<String> regexs = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            regexs.add(String.format("SKU-%02d-[A-Z]{3}\\d{4}", i));
+        }
+        return Collections.unmodifiableList(regexs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        module.stop();
+        muleContext.dispose();
+        membershipEntries.delete();
+        membershipFile.delete();
+    }
+
+    /**
+     * A message per benchmark thread, since flow variables are not meant to be written concurrently.
+     */
+    @State(Scope.Thread)
+    public static class MessageState {
+        MuleMessage message;
+
+        @Setup(Level.Trial)
+        public void setUp(ValidationModuleBenchmark benchmark) {
+            message = new DefaultMuleMessage(null, benchmark.muleContext);
+        }
+    }
+
+    @Benchmark
+    public Object validateDomain(MessageState state) {
+        try {
+            module.validateDomain(domain, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateTopLevelDomain(MessageState state) {
+        try {
+            module.validateTopLevelDomain(topLevelDomain, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateTopLevelDomainCountry(MessageState state) {
+        try {
+            module.validateTopLevelDomainCountry(countryCode, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateCreditCardNumber(MessageState state) {
+        try {
+            module.validateCreditCardNumber(creditCardNumber, CARD_TYPES, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateCheckDigit(MessageState state) {
+        try {
+            module.validateCheckDigit(ean13, CheckDigitScheme.EAN13, null, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateIban(MessageState state) {
+        try {
+            module.validateIban(iban, null, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateEmail(MessageState state) {
+        try {
+            module.validateEmail(emailAddress, null, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateIpAddress(MessageState state) {
+        try {
+            module.validateIpAddress(ipAddress, IpVersion.ANY, true, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validatePercentage(MessageState state) {
+        try {
+            module.validatePercentage(percentage, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateISBN10(MessageState state) {
+        try {
+            module.validateISBN10(isbn10, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateISBN13(MessageState state) {
+        try {
+            module.validateISBN13(isbn13, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateUrl(MessageState state) {
+        try {
+            module.validateUrl(url, false, false, false, false, null, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateTime(MessageState state) {
+        try {
+            module.validateTime(time, Locale.US, null, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateDate(MessageState state) {
+        try {
+            module.validateDate(date, Locale.US, null, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateIsoTimestamp(MessageState state) {
+        try {
+            module.validateDate(timestamp, Locale.US, "ISO-8601", verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateUsingRegex(MessageState state) {
+        try {
+            module.validateUsingRegex(postalCode, REGEXS, false, false, null, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateUsingManyRegexs(MessageState state) {
+        try {
+            module.validateUsingRegex(sku, SKU_REGEXS, true, false, null, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateUsingManyRegexsCombined(MessageState state) {
+        try {
+            module.validateUsingRegex(sku, SKU_REGEXS, true, true, null, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateLong(MessageState state) {
+        try {
+            module.validateLong(integralNumber, Locale.US, null, 0L, 10000000L, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateInteger(MessageState state) {
+        try {
+            module.validateInteger(integralNumber, Locale.US, null, 0, 10000000, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateFloat(MessageState state) {
+        try {
+            module.validateFloat(decimalNumber, Locale.US, null, 1f, 5f, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateDouble(MessageState state) {
+        try {
+            module.validateDouble(decimalNumber, Locale.US, null, 1d, 5d, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object convertToLong(MessageState state) {
+        try {
+            return module.convertToLong(integralNumber, Locale.US, null, 0L, 10000000L, null, EXCEPTION, state.message);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object convertToInteger(MessageState state) {
+        try {
+            return module.convertToInteger(integralNumber, Locale.US, null, 0, 10000000, null, EXCEPTION, state.message);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object convertToFloat(MessageState state) {
+        try {
+            return module.convertToFloat(decimalNumber, Locale.US, null, 1f, 5f, null, EXCEPTION, state.message);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object convertToDouble(MessageState state) {
+        try {
+            return module.convertToDouble(decimalNumber, Locale.US, null, 1d, 5d, null, EXCEPTION, state.message);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object convertToDate(MessageState state) {
+        try {
+            return module.convertToDate(date, Locale.US, null, null, EXCEPTION, state.message);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object convertToTime(MessageState state) {
+        try {
+            return module.convertToTime(time, Locale.US, null, null, EXCEPTION, state.message);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateNotEmpty(MessageState state) {
+        try {
+            module.validateNotEmpty(notEmpty, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateLength(MessageState state) {
+        try {
+            module.validateLength(name, 8, 16, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateAll(MessageState state) {
+        try {
+            state.message.setPayload(order);
+            module.validateAll(RULES, true, resultVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateAllAsync(MessageState state) {
+        try {
+            state.message.setPayload(order);
+            module.validateAllAsync(RULES, true, "pendingValidation", state.message);
+            module.awaitValidation("pendingValidation", 30000L, resultVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateFields(MessageState state) {
+        try {
+            module.validateFields(fields, FIELD_RULES, true, resultVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateMembership(MessageState state) {
+        try {
+            module.validateMembership(account, "accounts", false, verdictVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateCollection(MessageState state) {
+        try {
+            module.validateCollection(emails, "email", null, resultVariable, EXCEPTION, state.message);
+            return state.message;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateRecords(MessageState state) {
+        try {
+            InputStream validRecords = module.validateRecords(new ByteArrayInputStream(records), RECORD_RULES, ",", 0, "UTF-8", 1000, "rejections", state.message);
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            for (int read = validRecords.read(buffer); read >= 0; read = validRecords.read(buffer)) {
+                total += read;
+            }
+            return total;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe, size-bounded cache with least-recently-used eviction.
+ * <p/>
+ * Entries are spread over up to {@value #MAX_SEGMENTS} independently locked segments so that concurrent lookups for
+ * different keys rarely contend. The maximum size is divided exactly between the segments and each segment evicts its
+ * own least-recently-used entry once it is full, which keeps the total number of entries at or below the configured
+ * maximum size. Eviction is therefore only approximately least-recently-used across the whole cache. Segments hold at
+ * least {@value #MIN_SEGMENT_SIZE} entries, so small caches use fewer segments and a cache of fewer than 32 entries is
+ * a single exact least-recently-used list.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the cached values
+ */
+final class BoundedCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 16;
+
+    /**
+     * Creates the value for a key that is not present in the cache.
+     */
+    abstract static class ValueFactory<K, V> {
+        abstract V create(K key) throws Exception;
+
+        /**
+         * Returns the key to retain in the cache for a newly created value. Lookup keys may wrap mutable caller state,
+         * in which case this method should return a defensive copy.
+         *
+         * @param key the key used for the lookup
+         * @return the key to store
+         */
+        K retain(K key) {
+            return key;
+        }
+    }
+
+    private final int maxSize;
+    private final Segment<K, V>[] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    BoundedCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The maximum size of a cache cannot be negative");
+        }
+        this.maxSize = maxSize;
+
+        int segmentCount = Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE));
+        int segmentSize = maxSize / segmentCount;
+        int remainder = maxSize % segmentCount;
+        segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<K, V>(i < remainder ? segmentSize + 1 : segmentSize);
+        }
+    }
+
+    /**
+     * Returns the value cached for <code>key</code>, creating and caching it with <code>factory</code> when absent.
+     * When the cache has a maximum size of zero values are always created and never retained.
+     *
+     * @param key     key to look up
+     * @param factory factory used on a miss
+     * @return the cached or newly created value
+     * @throws Exception if the factory fails
+     */
+    V get(K key, ValueFactory<K, V> factory) throws Exception {
+        Segment<K, V> segment = segmentFor(key);
+
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value != null) {
+            hits.incrementAndGet();
+            return value;
+        }
+
+        misses.incrementAndGet();
+        V created = factory.create(key);
+        if (maxSize == 0) {
+            return created;
+        }
+
+        synchronized (segment) {
+            value = segment.get(key);
+            if (value != null) {
+                return value;
+            }
+            segment.put(factory.retain(key), created);
+            if (segment.evicted) {
+                segment.evicted = false;
+                evictions.incrementAndGet();
+            }
+        }
+        return created;
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    CacheStatistics getStatistics() {
+        return new CacheStatistics(maxSize, size(), hits.get(), misses.get(), evictions.get());
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private boolean evicted;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evicted = true;
+                return true;
+            }
+            return false;
+        }
+    }
+}
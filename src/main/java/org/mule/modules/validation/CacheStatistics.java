@@ -0,0 +1,64 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+/**
+ * Point-in-time snapshot of the counters of one of the caches used by {@link ValidationModule}.
+ */
+public final class CacheStatistics {
+    private final int maxSize;
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public CacheStatistics(int maxSize, int size, long hitCount, long missCount, long evictionCount) {
+        this.maxSize = maxSize;
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return ratio of lookups served from the cache, or <code>0</code> when the cache was never used
+     */
+    public double getHitRatio() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics[maxSize=" + maxSize + ", size=" + size + ", hits=" + hitCount +
+                ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+    }
+}
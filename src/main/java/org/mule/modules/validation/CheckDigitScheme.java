@@ -0,0 +1,60 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+/**
+ * Check digit schemes supported by {@link ValidationModule#validateCheckDigit}.
+ */
+public enum CheckDigitScheme {
+    /**
+     * Two or more digits ending with a Luhn (mod 10) check digit, as used by card numbers and IMEIs
+     */
+    LUHN,
+    /**
+     * 8 digit EAN-8 product codes
+     */
+    EAN8,
+    /**
+     * 12 digit UPC-A product codes
+     */
+    UPC_A,
+    /**
+     * 13 digit EAN-13 product codes
+     */
+    EAN13,
+    /**
+     * GTIN product codes of 8, 12, 13 or 14 digits
+     */
+    GTIN,
+    /**
+     * 10 character ISBN-10 book numbers, whose check character may be <code>X</code>
+     */
+    ISBN10,
+    /**
+     * 13 digit ISBN-13 book numbers, starting with 978 or 979
+     */
+    ISBN13,
+    /**
+     * Two or more digits ending with a mod 11 check character, <code>X</code> standing for ten, weighted by their
+     * position from the right as in ISBN-10 and ISSN
+     */
+    MOD11,
+    /**
+     * International bank account numbers: a country code, two check digits and up to 30 letters and digits, checked
+     * with ISO 7064 MOD 97-10 and against the length of the country when it is known
+     */
+    IBAN,
+    /**
+     * Digits and letters checked with ISO 7064 MOD 97-10 in the order they are written, letters counting from 10 for
+     * <code>A</code> to 35 for <code>Z</code>
+     */
+    MOD97
+}
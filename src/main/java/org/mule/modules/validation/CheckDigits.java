@@ -0,0 +1,344 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+/**
+ * Verifies the check digits of codes with a single scan of their characters, using primitive arithmetic only and
+ * without allocation.
+ * <p/>
+ * Characters listed as separators are skipped wherever they appear, so that codes can be checked in their printed
+ * form, such as <code>978-0-123-45678-6</code> or <code>GB82 WEST 1234 5698 7654 32</code>. Any other character that
+ * is not part of the code makes it invalid.
+ * <p/>
+ * MOD 97-10 remainders are computed on a long that accumulates digits and is only reduced once it exceeds
+ * {@link #MOD97_THRESHOLD}, instead of converting the code to a <code>BigInteger</code>.
+ */
+final class CheckDigits {
+    /**
+     * Largest value kept before reducing a MOD 97-10 remainder; adding two more digits to it cannot overflow.
+     */
+    private static final long MOD97_THRESHOLD = 100000000000000L;
+
+    private static final int MIN_IBAN_LENGTH = 15;
+    private static final int MAX_IBAN_LENGTH = 34;
+
+    /**
+     * IBAN lengths by country, from the IBAN registry. Countries that are not listed accept any length between
+     * {@link #MIN_IBAN_LENGTH} and {@link #MAX_IBAN_LENGTH}.
+     */
+    private static final String IBAN_COUNTRY_LENGTHS = "AD24AE23AL28AT20AZ28BA20BE16BG22BH22BR29BY28CH21CR22CY28CZ24"
+            + "DE22DK18DO28EE20EG29ES24FI18FO18FR27GB22GE22GI23GL18GR27GT28HR21HU28IE22IL23IQ23IS26IT27JO30KW30KZ20"
+            + "LB28LC32LI21LT20LU20LV21MC27MD24ME22MK19MR27MT31MU30NL18NO15PK24PL28PS29PT25QA29RO24RS22SA24SC31SE24"
+            + "SI19SK24SM27ST25SV28TL23TN24TR26UA29VA22VG24XK20";
+
+    private static final byte[] IBAN_LENGTHS = new byte[26 * 26];
+
+    static {
+        for (int i = 0; i < IBAN_COUNTRY_LENGTHS.length(); i += 4) {
+            int country = (IBAN_COUNTRY_LENGTHS.charAt(i) - 'A') * 26 + IBAN_COUNTRY_LENGTHS.charAt(i + 1) - 'A';
+            IBAN_LENGTHS[country] = (byte) Integer.parseInt(IBAN_COUNTRY_LENGTHS.substring(i + 2, i + 4));
+        }
+    }
+
+    /**
+     * The separators of the ISBN groups accepted by the commons <code>ISBNValidator</code>: a hyphen or a whitespace
+     * character.
+     */
+    private static final String ISBN_SEPARATORS = "- \t\n\013\f\r";
+
+    /**
+     * Maximum length of each group of a hyphenated ISBN-10: registration group, registrant, publication and check
+     * character.
+     */
+    private static final int[] ISBN10_GROUPS = {5, 7, 6, 1};
+
+    /**
+     * Maximum length of each group of a hyphenated ISBN-13, which starts with a group of exactly three digits.
+     */
+    private static final int[] ISBN13_GROUPS = {3, 5, 7, 6, 1};
+
+    private static final int INVALID = -1;
+
+    private CheckDigits() {
+    }
+
+    /**
+     * @param value      Code to check
+     * @param scheme     Check digit scheme of the code
+     * @param separators Characters skipped wherever they appear, or <code>null</code>
+     * @return true if <code>value</code> is a code of the scheme with valid check digits
+     */
+    static boolean isValid(CharSequence value, CheckDigitScheme scheme, String separators) {
+        if (value == null) {
+            return false;
+        }
+
+        int end = value.length();
+        switch (scheme) {
+            case LUHN:
+                return isLuhn(value, 0, end, separators);
+            case EAN8:
+                return gtinLength(value, 0, end, separators) == 8;
+            case UPC_A:
+                return gtinLength(value, 0, end, separators) == 12;
+            case EAN13:
+                return gtinLength(value, 0, end, separators) == 13;
+            case GTIN:
+                int length = gtinLength(value, 0, end, separators);
+                return length == 8 || length == 12 || length == 13 || length == 14;
+            case ISBN10:
+                return mod11Length(value, 0, end, separators) == 10;
+            case ISBN13:
+                return gtinLength(value, 0, end, separators) == 13 && hasIsbnPrefix(value, 0, end, separators);
+            case MOD11:
+                return mod11Length(value, 0, end, separators) >= 2;
+            case IBAN:
+                return isIban(value, separators);
+            case MOD97:
+                return significantLength(value, 0, end, separators) >= 3 && mod97(value, 0, end, separators, 0) % 97 == 1;
+            default:
+                throw new IllegalArgumentException("Unsupported check digit scheme " + scheme);
+        }
+    }
+
+    /**
+     * Checks an ISBN-10 with the rules of the commons <code>ISBNValidator</code>: ten characters, either together or
+     * split into four groups by single hyphens or spaces, the last being the check character.
+     *
+     * @return true if <code>value</code> is a valid ISBN-10
+     */
+    static boolean isIsbn10(CharSequence value) {
+        return isIsbn(value, false);
+    }
+
+    /**
+     * Checks an ISBN-13 with the rules of the commons <code>ISBNValidator</code>: thirteen digits starting with 978
+     * or 979, either together or split into five groups by single hyphens or spaces, the first being the prefix and
+     * the last the check digit.
+     *
+     * @return true if <code>value</code> is a valid ISBN-13
+     */
+    static boolean isIsbn13(CharSequence value) {
+        return isIsbn(value, true);
+    }
+
+    private static boolean isIsbn(CharSequence value, boolean isbn13) {
+        if (value == null) {
+            return false;
+        }
+
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int[] groupLimits = isbn13 ? ISBN13_GROUPS : ISBN10_GROUPS;
+        int groups = 0;
+        int groupLength = 0;
+        int firstGroupLength = 0;
+        int characters = 0;
+        for (int i = start; i <= end; i++) {
+            char c = i < end ? value.charAt(i) : 0;
+            if (i < end && (c >= '0' && c <= '9' || (c == 'X' && !isbn13 && i == end - 1))) {
+                groupLength++;
+                characters++;
+                continue;
+            }
+            if (groupLength == 0 || (i < end && ISBN_SEPARATORS.indexOf(c) < 0)) {
+                return false;
+            }
+            if ((i < end || groups > 0) && (groups >= groupLimits.length || groupLength > groupLimits[groups])) {
+                return false;
+            }
+            if (groups == 0) {
+                firstGroupLength = groupLength;
+            }
+            groups++;
+            groupLength = 0;
+        }
+
+        if (characters != (isbn13 ? 13 : 10) || (groups > 1 && groups != groupLimits.length)) {
+            return false;
+        }
+        if (isbn13) {
+            return (groups == 1 || firstGroupLength == 3) && hasIsbnPrefix(value, start, end, ISBN_SEPARATORS)
+                    && gtinLength(value, start, end, ISBN_SEPARATORS) == 13;
+        }
+        return mod11Length(value, start, end, ISBN_SEPARATORS) == 10;
+    }
+
+    private static boolean isSeparator(char c, String separators) {
+        return separators != null && separators.indexOf(c) >= 0;
+    }
+
+    private static int significantLength(CharSequence value, int start, int end, String separators) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            if (!isSeparator(value.charAt(i), separators)) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isLuhn(CharSequence value, int start, int end, String separators) {
+        int sum = 0;
+        int digits = 0;
+        for (int i = end - 1; i >= start; i--) {
+            char c = value.charAt(i);
+            if (isSeparator(c, separators)) {
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            if ((digits & 1) == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            digits++;
+        }
+        return digits >= 2 && sum % 10 == 0;
+    }
+
+    /**
+     * Checks the GS1 check digit, where digits are weighted 1 and 3 alternately from the right.
+     *
+     * @return the number of digits if the check digit is valid, or -1
+     */
+    private static int gtinLength(CharSequence value, int start, int end, String separators) {
+        int sum = 0;
+        int digits = 0;
+        for (int i = end - 1; i >= start; i--) {
+            char c = value.charAt(i);
+            if (isSeparator(c, separators)) {
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            sum += (digits & 1) == 1 ? digit * 3 : digit;
+            digits++;
+        }
+        return digits >= 2 && sum % 10 == 0 ? digits : INVALID;
+    }
+
+    /**
+     * Checks a mod 11 check character, where each character is weighted by its position from the right and the check
+     * character may be <code>X</code> for ten.
+     *
+     * @return the number of characters if the check character is valid, or -1
+     */
+    private static int mod11Length(CharSequence value, int start, int end, String separators) {
+        int sum = 0;
+        int position = 0;
+        for (int i = end - 1; i >= start; i--) {
+            char c = value.charAt(i);
+            if (isSeparator(c, separators)) {
+                continue;
+            }
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c == 'X' && position == 0) {
+                digit = 10;
+            } else {
+                return INVALID;
+            }
+            position++;
+            sum = (sum + digit * (position % 11)) % 11;
+        }
+        return sum == 0 ? position : INVALID;
+    }
+
+    private static boolean hasIsbnPrefix(CharSequence value, int start, int end, String separators) {
+        int prefix = 0;
+        int digits = 0;
+        for (int i = start; i < end && digits < 3; i++) {
+            char c = value.charAt(i);
+            if (!isSeparator(c, separators)) {
+                prefix = prefix * 10 + c - '0';
+                digits++;
+            }
+        }
+        return prefix == 978 || prefix == 979;
+    }
+
+    /**
+     * Checks an IBAN: two upper case letters for the country, two check digits and upper case letters or digits, moving
+     * the first four characters to the end before computing the MOD 97-10 remainder.
+     */
+    private static boolean isIban(CharSequence value, String separators) {
+        int end = value.length();
+        int length = 0;
+        int bbanStart = -1;
+        int country = 0;
+        for (int i = 0; i < end; i++) {
+            char c = value.charAt(i);
+            if (isSeparator(c, separators)) {
+                continue;
+            }
+            boolean letter = c >= 'A' && c <= 'Z';
+            boolean digit = c >= '0' && c <= '9';
+            if (length < 2 ? !letter : length < 4 ? !digit : !letter && !digit) {
+                return false;
+            }
+            if (length < 2) {
+                country = country * 26 + c - 'A';
+            }
+            if (++length == 4) {
+                bbanStart = i + 1;
+            }
+        }
+
+        int countryLength = IBAN_LENGTHS[country];
+        if (length < MIN_IBAN_LENGTH || length > MAX_IBAN_LENGTH || (countryLength != 0 && length != countryLength)) {
+            return false;
+        }
+
+        long remainder = mod97(value, bbanStart, end, separators, 0);
+        return mod97(value, 0, bbanStart, separators, remainder) % 97 == 1;
+    }
+
+    /**
+     * Continues a MOD 97-10 computation over letters and digits, letters counting from 10 for <code>A</code>.
+     *
+     * @param remainder The remainder of the preceding characters
+     * @return a value congruent to the remainder modulo 97, or -1 if a character is neither a letter nor a digit
+     */
+    private static long mod97(CharSequence value, int start, int end, String separators, long remainder) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                remainder = remainder * 10 + c - '0';
+            } else if (c >= 'A' && c <= 'Z') {
+                remainder = remainder * 100 + c - 'A' + 10;
+            } else if (isSeparator(c, separators)) {
+                continue;
+            } else {
+                return INVALID;
+            }
+            if (remainder >= MOD97_THRESHOLD) {
+                remainder %= 97;
+            }
+        }
+        return remainder;
+    }
+}
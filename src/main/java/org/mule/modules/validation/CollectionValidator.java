@@ -0,0 +1,141 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Applies a {@link Rule} to every element of a collection, splitting large collections into chunks that are validated
+ * concurrently.
+ * <p/>
+ * Invalid elements are reported as {@link ValidationFailure}s whose index is the position of the element in the
+ * collection. The caller thread always validates one chunk itself, so a saturated executor slows the caller down
+ * instead of queueing an unbounded amount of work. Chunks that the executor cancels because it is shut down are
+ * validated on the caller thread as well.
+ */
+final class CollectionValidator {
+    private final ExecutorService executor;
+    private final int chunkSize;
+
+    /**
+     * @param executor  Executor running the chunks, or <code>null</code> to validate on the caller thread only
+     * @param chunkSize Number of elements per chunk
+     */
+    CollectionValidator(ExecutorService executor, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be greater than zero");
+        }
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param elements   Elements to validate
+     * @param rule       Rule to apply
+     * @param definition Definition of the rule, reported in the failures
+     * @param field      Key of the value to validate when the elements are maps, or <code>null</code> to validate the
+     *                   elements themselves
+     * @return the result of the validation
+     * @throws InterruptedException if interrupted while waiting for a chunk
+     * @throws ExecutionException   if the validation of a chunk failed
+     */
+    ValidationResult validate(Collection<?> elements, Rule rule, String definition, String field) throws InterruptedException, ExecutionException {
+        List<?> list;
+        if (elements instanceof List && elements instanceof RandomAccess) {
+            list = (List<?>) elements;
+        } else {
+            list = new ArrayList<Object>(elements);
+        }
+
+        int size = list.size();
+        if (executor == null || size <= chunkSize) {
+            return ValidationResult.of(new Chunk(list, 0, size, rule, definition, field).call());
+        }
+
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        List<Future<List<ValidationFailure>>> futures = new ArrayList<Future<List<ValidationFailure>>>();
+        for (int from = chunkSize; from < size; from += chunkSize) {
+            Chunk chunk = new Chunk(list, from, Math.min(size, from + chunkSize), rule, definition, field);
+            chunks.add(chunk);
+            futures.add(executor.submit(chunk));
+        }
+
+        List<ValidationFailure> failures = new Chunk(list, 0, chunkSize, rule, definition, field).call();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                List<ValidationFailure> chunkFailures;
+                try {
+                    chunkFailures = futures.get(i).get();
+                } catch (CancellationException e) {
+                    chunkFailures = chunks.get(i).call();
+                }
+                if (chunkFailures != null) {
+                    if (failures == null) {
+                        failures = chunkFailures;
+                    } else {
+                        failures.addAll(chunkFailures);
+                    }
+                }
+            }
+        } finally {
+            for (Future<List<ValidationFailure>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return ValidationResult.of(failures);
+    }
+
+    private static final class Chunk implements Callable<List<ValidationFailure>> {
+        private final List<?> list;
+        private final int from;
+        private final int to;
+        private final Rule rule;
+        private final String definition;
+        private final String field;
+
+        private Chunk(List<?> list, int from, int to, Rule rule, String definition, String field) {
+            this.list = list;
+            this.from = from;
+            this.to = to;
+            this.rule = rule;
+            this.definition = definition;
+            this.field = field;
+        }
+
+        @Override
+        public List<ValidationFailure> call() {
+            List<ValidationFailure> failures = null;
+            for (int i = from; i < to; i++) {
+                Object element = list.get(i);
+                Object value = element;
+                if (field != null) {
+                    value = element instanceof Map ? ((Map<?, ?>) element).get(field) : null;
+                }
+                if (!rule.isValid(value)) {
+                    if (failures == null) {
+                        failures = new ArrayList<ValidationFailure>();
+                    }
+                    failures.add(new ValidationFailure(i, definition));
+                }
+            }
+            return failures;
+        }
+    }
+}
@@ -14,11 +14,56 @@ import org.apache.commons.validator.routines.CodeValidator;
 import org.apache.commons.validator.routines.CreditCardValidator;
 
 public enum CreditCardType {
-    VISA(CreditCardValidator.VISA_VALIDATOR),
-    MASTERCARD(CreditCardValidator.MASTERCARD_VALIDATOR),
-    DINERS(CreditCardValidator.DINERS_VALIDATOR),
-    DISCOVER(CreditCardValidator.DISCOVER_VALIDATOR),
-    AMEX(CreditCardValidator.AMEX_VALIDATOR);
+    VISA(CreditCardValidator.VISA_VALIDATOR) {
+        @Override
+        boolean matches(CharSequence number) {
+            int length = number.length();
+            return (length == 13 || length == 16) && number.charAt(0) == '4';
+        }
+    },
+    MASTERCARD(CreditCardValidator.MASTERCARD_VALIDATOR) {
+        @Override
+        boolean matches(CharSequence number) {
+            return number.length() == 16 && number.charAt(0) == '5' && between(number.charAt(1), '1', '5');
+        }
+    },
+    DINERS(CreditCardValidator.DINERS_VALIDATOR) {
+        @Override
+        boolean matches(CharSequence number) {
+            if (number.length() != 14 || number.charAt(0) != '3') {
+                return false;
+            }
+            char second = number.charAt(1);
+            if (second == '0') {
+                return between(number.charAt(2), '0', '5') ||
+                        (number.charAt(2) == '9' && number.charAt(3) == '5');
+            }
+            return second == '6' || second == '8' || second == '9';
+        }
+    },
+    DISCOVER(CreditCardValidator.DISCOVER_VALIDATOR) {
+        @Override
+        boolean matches(CharSequence number) {
+            if (number.length() != 16 || number.charAt(0) != '6') {
+                return false;
+            }
+            char second = number.charAt(1);
+            if (second == '0') {
+                return number.charAt(2) == '1' && number.charAt(3) == '1';
+            }
+            if (second == '4') {
+                return between(number.charAt(2), '4', '9');
+            }
+            return second == '5';
+        }
+    },
+    AMEX(CreditCardValidator.AMEX_VALIDATOR) {
+        @Override
+        boolean matches(CharSequence number) {
+            return number.length() == 15 && number.charAt(0) == '3' &&
+                    (number.charAt(1) == '4' || number.charAt(1) == '7');
+        }
+    };
 
     private CodeValidator codeValidator;
 
@@ -29,4 +74,23 @@ public enum CreditCardType {
     public CodeValidator getCodeValidator() {
         return codeValidator;
     }
+
+    /**
+     * @return the bit of this type in the masks used by {@link CreditCardValidators}
+     */
+    int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Checks the issuer prefix and the length of a card number made of ASCII digits only.
+     *
+     * @param number Card number
+     * @return true if the number has the prefix and length of this card type
+     */
+    abstract boolean matches(CharSequence number);
+
+    private static boolean between(char c, char min, char max) {
+        return c >= min && c <= max;
+    }
 }
@@ -0,0 +1,110 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.apache.commons.validator.routines.CodeValidator;
+import org.apache.commons.validator.routines.CreditCardValidator;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Credit card validation for a set of {@link CreditCardType}s identified by a bit mask.
+ * <p/>
+ * There are only <code>2^n</code> combinations of card types, so a {@link CreditCardValidator} is built lazily once
+ * per combination and shared afterwards. {@link #isValid(CharSequence, int)} offers an alternative that checks the
+ * issuer prefix, the length and the Luhn check digit in a single pass without regular expressions.
+ */
+final class CreditCardValidators {
+    private static final CreditCardType[] TYPES = CreditCardType.values();
+    private static final AtomicReferenceArray<CreditCardValidator> VALIDATORS = new AtomicReferenceArray<CreditCardValidator>(1 << TYPES.length);
+
+    private CreditCardValidators() {
+    }
+
+    /**
+     * @param types Credit card types
+     * @return the bit mask of the types
+     */
+    static int mask(List<CreditCardType> types) {
+        int mask = 0;
+        for (int i = 0; i < types.size(); i++) {
+            mask |= types.get(i).mask();
+        }
+        return mask;
+    }
+
+    /**
+     * @param mask Bit mask of the accepted card types
+     * @return the shared validator accepting the card types of the mask
+     */
+    static CreditCardValidator get(int mask) {
+        CreditCardValidator validator = VALIDATORS.get(mask);
+        if (validator == null) {
+            CodeValidator[] validators = new CodeValidator[Integer.bitCount(mask)];
+            int i = 0;
+            for (CreditCardType type : TYPES) {
+                if ((mask & type.mask()) != 0) {
+                    validators[i++] = type.getCodeValidator();
+                }
+            }
+            validator = new CreditCardValidator(validators);
+            if (!VALIDATORS.compareAndSet(mask, null, validator)) {
+                validator = VALIDATORS.get(mask);
+            }
+        }
+        return validator;
+    }
+
+    /**
+     * Checks that <code>number</code> is made of digits only, passes the Luhn check and has the prefix and length of
+     * one of the card types of the mask. Leading and trailing whitespace is ignored, as the commons validators trim
+     * the number. Nothing is allocated unless the number has to be trimmed.
+     *
+     * @param number Card number
+     * @param mask   Bit mask of the accepted card types
+     * @return true if valid
+     */
+    static boolean isValid(CharSequence number, int mask) {
+        if (number == null) {
+            return false;
+        }
+        int start = 0;
+        int end = number.length();
+        while (start < end && number.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && number.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start > 0 || end < number.length()) {
+            number = number.subSequence(start, end);
+        }
+
+        if (!isLuhn(number)) {
+            return false;
+        }
+        for (CreditCardType type : TYPES) {
+            if ((mask & type.mask()) != 0 && type.matches(number)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param number Number to check
+     * @return true if <code>number</code> is a non-empty sequence of ASCII digits with a valid Luhn check digit
+     */
+    static boolean isLuhn(CharSequence number) {
+        return CheckDigits.isValid(number, CheckDigitScheme.LUHN, null);
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.apache.commons.validator.routines.DomainValidator;
+
+/**
+ * Validates email addresses with a single scan of their characters, at the levels of {@link EmailStrictness}.
+ * <p/>
+ * Only ASCII addresses are accepted and no surrounding whitespace is allowed. The scan allocates nothing, except when
+ * the top-level domain must be checked and no top-level domains file is configured: the top label is then copied to
+ * be looked up by the commons <code>DomainValidator</code>.
+ */
+final class EmailAddresses {
+    private static final int MAX_LOCAL_PART = 64;
+    private static final int MAX_LABEL = 63;
+    private static final int MAX_ADDRESS = 254;
+
+    /**
+     * Characters allowed in the atoms of a local part, <code>atext</code> in RFC 5322.
+     */
+    private static final boolean[] ATEXT = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ATEXT[c] = true;
+            ATEXT[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            ATEXT[c] = true;
+        }
+        for (char c : "!#$%&'*+-/=?^_`{|}~".toCharArray()) {
+            ATEXT[c] = true;
+        }
+    }
+
+    private EmailAddresses() {
+    }
+
+    /**
+     * @param value      Address to validate
+     * @param strictness Checks to apply
+     * @param domains    Known top-level domains, or <code>null</code> to use the list of the commons validators
+     * @return true if <code>value</code> is a valid address
+     */
+    static boolean isValid(CharSequence value, EmailStrictness strictness, TopLevelDomains domains) {
+        if (value == null) {
+            return false;
+        }
+        int length = value.length();
+        boolean rfc5321 = strictness == EmailStrictness.RFC5321;
+        if (rfc5321 && length > MAX_ADDRESS) {
+            return false;
+        }
+
+        int at = rfc5321 && length > 0 && value.charAt(0) == '"' ? quotedStringEnd(value) : dotAtomEnd(value);
+        if (at <= 0 || at >= length - 1 || value.charAt(at) != '@') {
+            return false;
+        }
+        if (rfc5321 && at > MAX_LOCAL_PART) {
+            return false;
+        }
+
+        int domainStart = at + 1;
+        if (value.charAt(domainStart) == '[') {
+            return isValidAddressLiteral(value, domainStart, length);
+        }
+
+        int top = TopLevelDomains.topLabelStart(value, domainStart, length);
+        if (top < 0 || (rfc5321 && !hasValidLabelLengths(value, domainStart, length))) {
+            return false;
+        }
+        if (strictness == EmailStrictness.SYNTAX) {
+            return true;
+        }
+        if (domains != null) {
+            return domains.isValidTld(value, top, length);
+        }
+        return DomainValidator.getInstance().isValidTld(value.subSequence(top, length).toString());
+    }
+
+    /**
+     * Scans atoms separated by single dots.
+     *
+     * @return the index of the character that ends the local part, or -1 if it is not a valid dot-atom
+     */
+    private static int dotAtomEnd(CharSequence value) {
+        int length = value.length();
+        boolean atomStart = true;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                if (atomStart) {
+                    return -1;
+                }
+                atomStart = true;
+            } else if (c < 128 && ATEXT[c]) {
+                atomStart = false;
+            } else {
+                return atomStart ? -1 : i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scans a quoted string, in which printable ASCII characters other than the quote and the backslash are allowed
+     * as is, and any printable ASCII character may be escaped with a backslash.
+     *
+     * @return the index of the character following the closing quote, or -1 if the quoted string is not valid
+     */
+    private static int quotedStringEnd(CharSequence value) {
+        int length = value.length();
+        for (int i = 1; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            if (c == '\\') {
+                i++;
+                if (i == length || value.charAt(i) < 32 || value.charAt(i) > 126) {
+                    return -1;
+                }
+            } else if (c < 32 || c > 126) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isValidAddressLiteral(CharSequence value, int start, int end) {
+        if (value.charAt(end - 1) != ']') {
+            return false;
+        }
+        int ipStart = start + 1;
+        int ipEnd = end - 1;
+        if (startsWithIgnoreCase(value, ipStart, ipEnd, "IPv6:")) {
+            return IpAddresses.isValid(value, ipStart + 5, ipEnd, IpVersion.IPV6, true);
+        }
+        return IpAddresses.isValid(value, ipStart, ipEnd, IpVersion.IPV4, true);
+    }
+
+    private static boolean startsWithIgnoreCase(CharSequence value, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(value.charAt(start + i)) != Character.toLowerCase(prefix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasValidLabelLengths(CharSequence value, int start, int end) {
+        int labelStart = start;
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) == '.') {
+                if (i - labelStart > MAX_LABEL) {
+                    return false;
+                }
+                labelStart = i + 1;
+            }
+        }
+        return end - labelStart <= MAX_LABEL;
+    }
+}
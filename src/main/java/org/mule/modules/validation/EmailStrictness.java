@@ -0,0 +1,37 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+/**
+ * Checks applied to email addresses by {@link ValidationModule#validateEmail} when a strictness is specified.
+ * <p/>
+ * The levels are not strictly nested: {@link #TOP_LEVEL_DOMAIN} rejects every address that {@link #SYNTAX} rejects,
+ * and {@link #RFC5321} keeps the top-level domain check and adds length limits, but it also accepts quoted local parts
+ * that the two other levels reject.
+ */
+public enum EmailStrictness {
+    /**
+     * The local part is a dot-separated sequence of atoms and the domain is a syntactically valid host name with a top
+     * label of at least two letters, or an address literal such as <code>[192.0.2.1]</code> or
+     * <code>[IPv6:2001:db8::1]</code>
+     */
+    SYNTAX,
+    /**
+     * The top label of the domain is also a known top-level domain
+     */
+    TOP_LEVEL_DOMAIN,
+    /**
+     * The checks of {@link #TOP_LEVEL_DOMAIN}, except that the local part may also be a quoted string, and the length
+     * limits of RFC 5321: 64 characters for the local part, 63 for each label of the domain and 254 for the whole
+     * address
+     */
+    RFC5321
+}
@@ -0,0 +1,144 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.mule.transport.NullPayload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Tells whether a value is empty. How emptiness is checked depends only on the class of the value, so the strategy is
+ * chosen the first time a class is seen and remembered in a {@link ClassValue}; later checks of the same class are a
+ * lookup and a call, without walking the class hierarchy or allocating.
+ */
+final class Emptiness {
+    private Emptiness() {
+    }
+
+    private enum Strategy {
+        EMPTY {
+            @Override
+            boolean isEmpty(Object value) {
+                return true;
+            }
+        },
+        COLLECTION {
+            @Override
+            boolean isEmpty(Object value) {
+                return ((Collection<?>) value).isEmpty();
+            }
+        },
+        MAP {
+            @Override
+            boolean isEmpty(Object value) {
+                return ((Map<?, ?>) value).isEmpty();
+            }
+        },
+        CHAR_SEQUENCE {
+            @Override
+            boolean isEmpty(Object value) {
+                return ((CharSequence) value).length() == 0;
+            }
+        },
+        ARRAY {
+            @Override
+            boolean isEmpty(Object value) {
+                return Array.getLength(value) == 0;
+            }
+        },
+        ITERATOR {
+            @Override
+            boolean isEmpty(Object value) {
+                return !((Iterator<?>) value).hasNext();
+            }
+        },
+        INPUT_STREAM {
+            @Override
+            boolean isEmpty(Object value) {
+                return isExhausted((InputStream) value);
+            }
+        },
+        NEVER_EMPTY {
+            @Override
+            boolean isEmpty(Object value) {
+                return false;
+            }
+        };
+
+        abstract boolean isEmpty(Object value);
+    }
+
+    private static final ClassValue<Strategy> STRATEGIES = new ClassValue<Strategy>() {
+        @Override
+        protected Strategy computeValue(Class<?> type) {
+            if (NullPayload.class.isAssignableFrom(type)) {
+                return Strategy.EMPTY;
+            } else if (Collection.class.isAssignableFrom(type)) {
+                return Strategy.COLLECTION;
+            } else if (Map.class.isAssignableFrom(type)) {
+                return Strategy.MAP;
+            } else if (CharSequence.class.isAssignableFrom(type)) {
+                return Strategy.CHAR_SEQUENCE;
+            } else if (type.isArray()) {
+                return Strategy.ARRAY;
+            } else if (Iterator.class.isAssignableFrom(type)) {
+                return Strategy.ITERATOR;
+            } else if (InputStream.class.isAssignableFrom(type)) {
+                return Strategy.INPUT_STREAM;
+            }
+            return Strategy.NEVER_EMPTY;
+        }
+    };
+
+    /**
+     * Checks whether a value is empty. <code>null</code> and {@link NullPayload} are empty; collections, maps,
+     * character sequences and arrays are empty when they have no elements or characters, iterators when they have no
+     * next element and input streams when they are at their end. Any other value is not empty.
+     *
+     * @param value Value to check
+     * @return true if empty
+     */
+    static boolean isEmpty(Object value) {
+        return value == null || STRATEGIES.get(value.getClass()).isEmpty(value);
+    }
+
+    /**
+     * Peeks at the first byte of a stream without consuming it, which is only possible when the stream supports marks
+     * or is a {@link PushbackInputStream}. Other streams, and streams that fail to read, are considered not empty so
+     * that the payload is left untouched.
+     */
+    private static boolean isExhausted(InputStream stream) {
+        try {
+            if (stream.markSupported()) {
+                stream.mark(1);
+                int next = stream.read();
+                stream.reset();
+                return next < 0;
+            }
+            if (stream instanceof PushbackInputStream) {
+                int next = stream.read();
+                if (next < 0) {
+                    return true;
+                }
+                ((PushbackInputStream) stream).unread(next);
+            }
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds the exceptions thrown when a validation fails.
+ * <p/>
+ * Exception classes are resolved and checked once per class name; afterwards building an exception costs a single map
+ * lookup and the invocation of the cached constructor.
+ * <p/>
+ * Exception classes that declare a public <code>(String processorName, Object value, boolean writableStackTrace)</code>
+ * constructor, such as {@link InvalidException}, receive the failing processor and value and can be built without a
+ * stack trace. Other classes are built with their public no-argument constructor.
+ */
+final class ExceptionFactory {
+    private static final Class<?>[] DETAILED_CONSTRUCTOR_PARAMETERS = new Class<?>[]{String.class, Object.class, boolean.class};
+
+    private final ConcurrentMap<String, ExceptionConstructor> constructors = new ConcurrentHashMap<String, ExceptionConstructor>();
+
+    ExceptionFactory() {
+        constructors.put(InvalidException.class.getName(), new ExceptionConstructor(InvalidException.class));
+    }
+
+    /**
+     * Resolves and caches the constructor of the specified exception class without instantiating it.
+     *
+     * @param className Class name of the exception
+     * @throws ClassNotFoundException   if the class cannot be found
+     * @throws IllegalArgumentException if the class is not a concrete {@link Exception} with a public no-argument
+     *                                  constructor
+     */
+    void resolve(String className) throws ClassNotFoundException {
+        constructorFor(className);
+    }
+
+    /**
+     * @param className Class name of the exception
+     * @return true if the constructor of the class has already been resolved
+     */
+    boolean isResolved(String className) {
+        return constructors.containsKey(className);
+    }
+
+    /**
+     * Creates a new instance of the specified exception class.
+     *
+     * @param className     Class name of the exception
+     * @param processorName Name of the processor that rejected the value
+     * @param value         The rejected value
+     * @param stackless     Whether the stack trace should be omitted, if the exception class supports it
+     * @return the exception
+     * @throws ClassNotFoundException if the class cannot be found
+     * @throws InstantiationException if the class cannot be instantiated
+     * @throws IllegalAccessException if the constructor is not accessible
+     */
+    Exception create(String className, String processorName, Object value, boolean stackless) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+        ExceptionConstructor constructor = constructorFor(className);
+        try {
+            if (constructor.detailed != null) {
+                return constructor.detailed.newInstance(processorName, value, !stackless);
+            }
+            return constructor.simple.newInstance();
+        } catch (InvocationTargetException e) {
+            InstantiationException exception = new InstantiationException("The constructor of " + className + " failed");
+            exception.initCause(e.getCause());
+            throw exception;
+        }
+    }
+
+    private ExceptionConstructor constructorFor(String className) throws ClassNotFoundException {
+        ExceptionConstructor constructor = constructors.get(className);
+        if (constructor == null) {
+            Class<?> exceptionClass = Class.forName(className);
+
+            if (!Exception.class.isAssignableFrom(exceptionClass)) {
+                throw new IllegalArgumentException("The class name must be that of a Throwable class");
+            }
+
+            constructor = new ExceptionConstructor(exceptionClass.asSubclass(Exception.class));
+            ExceptionConstructor existing = constructors.putIfAbsent(className, constructor);
+            if (existing != null) {
+                constructor = existing;
+            }
+        }
+        return constructor;
+    }
+
+    private static final class ExceptionConstructor {
+        private final Constructor<? extends Exception> simple;
+        private final Constructor<? extends Exception> detailed;
+
+        private ExceptionConstructor(Class<? extends Exception> exceptionClass) {
+            if (Modifier.isAbstract(exceptionClass.getModifiers())) {
+                throw new IllegalArgumentException("The exception class " + exceptionClass.getName() + " cannot be abstract");
+            }
+
+            Constructor<? extends Exception> detailedConstructor;
+            try {
+                detailedConstructor = exceptionClass.getConstructor(DETAILED_CONSTRUCTOR_PARAMETERS);
+            } catch (NoSuchMethodException e) {
+                detailedConstructor = null;
+            }
+            this.detailed = detailedConstructor;
+
+            Constructor<? extends Exception> simpleConstructor;
+            try {
+                simpleConstructor = exceptionClass.getConstructor();
+            } catch (NoSuchMethodException e) {
+                if (detailedConstructor == null) {
+                    throw new IllegalArgumentException("The exception class " + exceptionClass.getName() + " must have a public no-argument constructor");
+                }
+                simpleConstructor = null;
+            }
+            this.simple = simpleConstructor;
+        }
+    }
+}
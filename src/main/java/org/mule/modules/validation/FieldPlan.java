@@ -0,0 +1,226 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, compiled list of rules applied to the fields of an object, such as a map or a Java bean.
+ * <p/>
+ * Each entry of the plan has the form <code>path =&gt; rule</code>, for example <code>customer.email =&gt; email</code>
+ * or <code>quantity =&gt; long(1,100)</code>, where the path is a dot-separated list of property names. A property of
+ * a {@link Map} is the value of that key; a property of any other object is read from its public <code>getX()</code>
+ * or <code>isX()</code> method, or else from its public field. See {@link Rules} for the supported rule definitions.
+ * <p/>
+ * No expression is evaluated. The accessor of each property is looked up once per class of the object that holds it
+ * and kept as a {@link MethodHandle}, so validating an object is a loop over the entries of the plan. A path reaching
+ * a <code>null</code> value yields <code>null</code> for the rule.
+ */
+final class FieldPlan {
+    private final Property[][] paths;
+    private final Rule[] rules;
+    private final String[] definitions;
+
+    private FieldPlan(Property[][] paths, Rule[] rules, String[] definitions) {
+        this.paths = paths;
+        this.rules = rules;
+        this.definitions = definitions;
+    }
+
+    /**
+     * Compiles a list of plan entries.
+     *
+     * @param entries        Entries of the form <code>path =&gt; rule</code>
+     * @param prepared       Rules compiled at startup, reused instead of compiling their definitions again
+     * @param domains        Known top-level domains, or <code>null</code> to use the list of the commons validators
+     * @param regexStepLimit Maximum number of characters read by a <code>regex</code> match, or zero for no limit
+     * @return the compiled plan
+     * @throws IllegalArgumentException if one of the entries is not valid
+     */
+    static FieldPlan compile(List<String> entries, Map<String, Rule> prepared, TopLevelDomains domains, int regexStepLimit) {
+        int size = entries.size();
+        Property[][] paths = new Property[size][];
+        Rule[] rules = new Rule[size];
+        String[] definitions = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            String entry = entries.get(i);
+            int separator = entry == null ? -1 : entry.indexOf(RulePlan.SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Rule '" + entry + "' must have the form 'path " + RulePlan.SEPARATOR + " rule'");
+            }
+            paths[i] = path(entry, entry.substring(0, separator).trim());
+            definitions[i] = entry.trim();
+            rules[i] = Rules.compile(entry.substring(separator + RulePlan.SEPARATOR.length()), prepared, domains, regexStepLimit);
+        }
+
+        return new FieldPlan(paths, rules, definitions);
+    }
+
+    private static Property[] path(String entry, String path) {
+        String[] names = path.split("\\.", -1);
+        Property[] properties = new Property[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].trim();
+            if (name.length() == 0) {
+                throw new IllegalArgumentException("Rule '" + entry + "' has an empty property name in its path");
+            }
+            properties[i] = new Property(name);
+        }
+        return properties;
+    }
+
+    /**
+     * Reads the fields of the object and applies the rules.
+     *
+     * @param object   The object to validate
+     * @param failFast Whether to stop at the first failure
+     * @return the result; the index of each failure is the position of the failing entry in the plan
+     * @throws IllegalArgumentException if a property of a path cannot be read from the class of its object
+     */
+    ValidationResult validate(Object object, boolean failFast) {
+        List<ValidationFailure> failures = null;
+        for (int i = 0; i < rules.length; i++) {
+            Object value = object;
+            for (Property property : paths[i]) {
+                if (value == null) {
+                    break;
+                }
+                value = property.get(value);
+            }
+
+            if (!rules[i].isValid(value)) {
+                if (failures == null) {
+                    failures = new ArrayList<ValidationFailure>(failFast ? 1 : rules.length - i);
+                }
+                failures.add(new ValidationFailure(i, definitions[i]));
+                if (failFast) {
+                    break;
+                }
+            }
+        }
+        return ValidationResult.of(failures);
+    }
+
+    /**
+     * One property name of a path, with its accessor for each class it has been read from.
+     */
+    private static final class Property {
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private final String name;
+
+        private final ClassValue<MethodHandle> accessors = new ClassValue<MethodHandle>() {
+            @Override
+            protected MethodHandle computeValue(Class<?> type) {
+                return resolve(type);
+            }
+        };
+
+        private Property(String name) {
+            this.name = name;
+        }
+
+        Object get(Object object) {
+            if (object instanceof Map) {
+                return ((Map<?, ?>) object).get(name);
+            }
+
+            MethodHandle accessor = accessors.get(object.getClass());
+            try {
+                return (Object) accessor.invokeExact(object);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalArgumentException("Property '" + name + "' of " + object.getClass().getName() + " cannot be read", e);
+            }
+        }
+
+        private MethodHandle resolve(Class<?> type) {
+            String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            try {
+                Method getter = getter(type, "get" + suffix);
+                if (getter == null) {
+                    getter = getter(type, "is" + suffix);
+                }
+                if (getter != null) {
+                    return MethodHandles.publicLookup().unreflect(getter).asType(GETTER_TYPE);
+                }
+
+                Field field = type.getField(name);
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return MethodHandles.publicLookup().unreflectGetter(field).asType(GETTER_TYPE);
+                }
+            } catch (NoSuchFieldException e) {
+                // no public field either
+            } catch (IllegalAccessException e) {
+                // declared by a class that is not public
+            }
+            throw new IllegalArgumentException("Class " + type.getName() + " has no public property '" + name + "'");
+        }
+
+        private static Method getter(Class<?> type, String methodName) {
+            try {
+                Method method = type.getMethod(methodName);
+                if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() == void.class) {
+                    return null;
+                }
+                if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                    method = publicDeclaration(method);
+                }
+                return method;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Finds the declaration of a public method in a public superclass or interface, so that getters implemented
+         * by a private class, such as the element of a collection returned by a library, can still be called.
+         */
+        private static Method publicDeclaration(Method method) {
+            for (Class<?> type = method.getDeclaringClass(); type != null; type = type.getSuperclass()) {
+                Method declaration = publicDeclaration(type, method);
+                if (declaration != null) {
+                    return declaration;
+                }
+            }
+            return null;
+        }
+
+        private static Method publicDeclaration(Class<?> type, Method method) {
+            if (Modifier.isPublic(type.getModifiers())) {
+                try {
+                    return type.getMethod(method.getName());
+                } catch (NoSuchMethodException e) {
+                    // not declared by this type
+                }
+            }
+            for (Class<?> anInterface : type.getInterfaces()) {
+                Method declaration = publicDeclaration(anInterface, method);
+                if (declaration != null) {
+                    return declaration;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -10,5 +10,70 @@
 
 package org.mule.modules.validation;
 
+/**
+ * Default exception thrown when a validation fails.
+ * <p/>
+ * Instances created by the module carry the name of the processor that rejected the value and the value itself.
+ * When the module is configured with <code>stacklessExceptions</code> the stack trace is not captured, which makes
+ * rejecting a value considerably cheaper in flows that route on exceptions.
+ */
 public class InvalidException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String processorName;
+    private final transient Object value;
+    private final boolean writableStackTrace;
+
+    public InvalidException() {
+        this(null, null, true);
+    }
+
+    /**
+     * @param processorName      Name of the processor that rejected the value
+     * @param value              The rejected value
+     * @param writableStackTrace Whether the stack trace should be captured
+     */
+    public InvalidException(String processorName, Object value, boolean writableStackTrace) {
+        this.processorName = processorName;
+        this.value = value;
+        this.writableStackTrace = writableStackTrace;
+        if (writableStackTrace) {
+            super.fillInStackTrace();
+        }
+    }
+
+    /**
+     * @return the name of the processor that rejected the value, or <code>null</code> if unknown
+     */
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    /**
+     * @return the rejected value, or <code>null</code> if unknown
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public String getMessage() {
+        String message = super.getMessage();
+        if (message == null && processorName != null) {
+            return "Validation failed in " + processorName;
+        }
+        return message;
+    }
+
+    /**
+     * The stack trace is captured by the constructor once the fields are set, so that stackless instances never pay
+     * for walking the stack.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        if (writableStackTrace) {
+            return super.fillInStackTrace();
+        }
+        return this;
+    }
 }
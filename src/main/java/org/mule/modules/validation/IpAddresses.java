@@ -0,0 +1,227 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+/**
+ * Validates the text form of IPv4 and IPv6 addresses with a single scan of the characters and no allocation.
+ * <p/>
+ * IPv4 addresses are four decimal octets of one to three digits separated by dots, as accepted by the commons
+ * <code>InetAddressValidator</code>. IPv6 addresses follow RFC 4291: eight groups of one to four hexadecimal digits,
+ * where a single <code>::</code> stands for one or more groups of zeros and the last two groups may be written as an
+ * IPv4 address. Zone identifiers and prefix lengths are not accepted.
+ * <p/>
+ * The scan also computes the address, which is how addresses that are not globally reachable are recognized:
+ * <ul>
+ * <li>IPv4: <code>0.0.0.0/8</code>, <code>10.0.0.0/8</code>, <code>100.64.0.0/10</code>, <code>127.0.0.0/8</code>,
+ * <code>169.254.0.0/16</code>, <code>172.16.0.0/12</code> and <code>192.168.0.0/16</code></li>
+ * <li>IPv6: <code>::</code>, <code>::1</code>, <code>fc00::/7</code>, <code>fe80::/10</code> and IPv4-mapped
+ * addresses of the private IPv4 ranges</li>
+ * </ul>
+ */
+final class IpAddresses {
+    private static final long INVALID = -1;
+
+    private IpAddresses() {
+    }
+
+    /**
+     * @param value        Text to validate
+     * @param version      Accepted versions
+     * @param allowPrivate Whether private, loopback, link-local and unspecified addresses are accepted
+     * @return true if <code>value</code> is an address of an accepted version
+     */
+    static boolean isValid(CharSequence value, IpVersion version, boolean allowPrivate) {
+        return value != null && isValid(value, 0, value.length(), version, allowPrivate);
+    }
+
+    /**
+     * Validates the characters of <code>value</code> between <code>start</code> and <code>end</code>.
+     *
+     * @see #isValid(CharSequence, IpVersion, boolean)
+     */
+    static boolean isValid(CharSequence value, int start, int end, IpVersion version, boolean allowPrivate) {
+        if (start >= end) {
+            return false;
+        }
+
+        if (version != IpVersion.IPV6) {
+            long address = parseIpv4(value, start, end);
+            if (address != INVALID) {
+                return allowPrivate || !isPrivateIpv4((int) address);
+            }
+        }
+        return version != IpVersion.IPV4 && isValidIpv6(value, start, end, allowPrivate);
+    }
+
+    /**
+     * @return the address as an unsigned 32 bit value, or {@link #INVALID}
+     */
+    private static long parseIpv4(CharSequence value, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int i = start;
+        while (true) {
+            int octet = 0;
+            int digits = 0;
+            while (i < end && digits < 4) {
+                int digit = value.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                octet = octet * 10 + digit;
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > 3 || octet > 255) {
+                return INVALID;
+            }
+
+            address = (address << 8) | octet;
+            octets++;
+            if (octets == 4) {
+                return i == end ? address : INVALID;
+            }
+            if (i == end || value.charAt(i) != '.') {
+                return INVALID;
+            }
+            i++;
+        }
+    }
+
+    private static boolean isPrivateIpv4(int address) {
+        int first = address >>> 24;
+        int second = (address >>> 16) & 0xff;
+        return first == 0 || first == 10 || first == 127 ||
+                (first == 100 && (second & 0xc0) == 64) ||
+                (first == 169 && second == 254) ||
+                (first == 172 && (second & 0xf0) == 16) ||
+                (first == 192 && second == 168);
+    }
+
+    /**
+     * Scans the groups of an IPv6 address. Groups before the <code>::</code> are placed from the most significant bits
+     * of the address as they are read; groups after it are shifted in from the least significant bits, since their
+     * position is only known at the end.
+     */
+    private static boolean isValidIpv6(CharSequence value, int start, int end, boolean allowPrivate) {
+        long headHigh = 0;
+        long headLow = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int groups = 0;
+        boolean compressed = false;
+        int i = start;
+
+        if (value.charAt(start) == ':') {
+            if (end - start < 2 || value.charAt(start + 1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i = start + 2;
+        }
+
+        while (i < end) {
+            int groupStart = i;
+            int group = 0;
+            int digits = 0;
+            while (i < end && digits < 5) {
+                int digit = hexDigit(value.charAt(i));
+                if (digit < 0) {
+                    break;
+                }
+                group = (group << 4) | digit;
+                digits++;
+                i++;
+            }
+
+            if (i < end && value.charAt(i) == '.') {
+                if (groups > 6) {
+                    return false;
+                }
+                long address = parseIpv4(value, groupStart, end);
+                if (address == INVALID) {
+                    return false;
+                }
+                if (compressed) {
+                    tailHigh = (tailHigh << 32) | (tailLow >>> 32);
+                    tailLow = (tailLow << 32) | address;
+                } else {
+                    headLow |= address;
+                }
+                groups += 2;
+                break;
+            }
+
+            if (digits == 0 || digits > 4) {
+                return false;
+            }
+            if (compressed) {
+                tailHigh = (tailHigh << 16) | (tailLow >>> 48);
+                tailLow = (tailLow << 16) | group;
+            } else if (groups < 4) {
+                headHigh |= (long) group << (48 - 16 * groups);
+            } else if (groups < 8) {
+                headLow |= (long) group << (48 - 16 * (groups - 4));
+            }
+            groups++;
+            if (groups > 8) {
+                return false;
+            }
+
+            if (i == end) {
+                break;
+            }
+            if (value.charAt(i) != ':') {
+                return false;
+            }
+            i++;
+            if (i < end && value.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            } else if (i == end) {
+                return false;
+            }
+        }
+
+        if (compressed ? groups > 7 : groups != 8) {
+            return false;
+        }
+        return allowPrivate || !isPrivateIpv6(headHigh | tailHigh, headLow | tailLow);
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isPrivateIpv6(long high, long low) {
+        if (high == 0) {
+            if (low == 0 || low == 1) {
+                return true;
+            }
+            if (low >>> 32 == 0xffff) {
+                return isPrivateIpv4((int) low);
+            }
+        }
+        return high >>> 57 == 0x7e || high >>> 54 == 0x3fa;
+    }
+}
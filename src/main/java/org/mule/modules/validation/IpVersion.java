@@ -0,0 +1,29 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+/**
+ * Versions of the IP addresses accepted by {@link ValidationModule#validateIpAddress}.
+ */
+public enum IpVersion {
+    /**
+     * IPv4 and IPv6 addresses
+     */
+    ANY,
+    /**
+     * Dotted-decimal IPv4 addresses only
+     */
+    IPV4,
+    /**
+     * IPv6 addresses only, including compressed forms and forms ending with an embedded IPv4 address
+     */
+    IPV6
+}
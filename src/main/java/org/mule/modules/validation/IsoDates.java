@@ -0,0 +1,274 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+/**
+ * Validates ISO-8601 dates, times and timestamps in the extended format with a single scan of the characters, checking
+ * the calendar on the way, and without allocation.
+ * <p/>
+ * Dates are <code>YYYY-MM-DD</code>, optionally followed by <code>T</code> and a time. Times are <code>hh:mm</code>,
+ * <code>hh:mm:ss</code> or <code>hh:mm:ss</code> followed by a decimal fraction of one to nine digits, and may end with
+ * <code>Z</code> or an offset of the form <code>+hh:mm</code>, <code>+hhmm</code> or <code>+hh</code>. The day must
+ * exist in the proleptic Gregorian calendar, hours range from 0 to 23 and offsets up to 18 hours.
+ * <p/>
+ * Converted values without an offset are in the default time zone, as with a {@link java.text.SimpleDateFormat}.
+ * Fractions are truncated to milliseconds.
+ */
+final class IsoDates {
+    /**
+     * The pattern that selects this format. It cannot be a {@link java.text.SimpleDateFormat} pattern, so it does not
+     * shadow one.
+     */
+    static final String PATTERN = "ISO-8601";
+
+    private static final int YEAR = 0;
+    private static final int MONTH = 1;
+    private static final int DAY = 2;
+    private static final int HOUR = 3;
+    private static final int MINUTE = 4;
+    private static final int SECOND = 5;
+    private static final int MILLISECOND = 6;
+    private static final int OFFSET = 7;
+    private static final int FIELDS = 8;
+
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+    private static final int MAX_OFFSET_HOURS = 18;
+    private static final int MAX_FRACTION_DIGITS = 9;
+
+    private IsoDates() {
+    }
+
+    /**
+     * @return true if <code>value</code> is a date, or a date and a time
+     */
+    static boolean isValidDate(CharSequence value) {
+        return value != null && scanDate(value, null);
+    }
+
+    /**
+     * @return true if <code>value</code> is a time
+     */
+    static boolean isValidTime(CharSequence value) {
+        return value != null && scanTime(value, 0, null);
+    }
+
+    /**
+     * @return the parsed date, or <code>null</code> if <code>value</code> is not a date, or a date and a time
+     */
+    static Date parseDate(CharSequence value) {
+        int[] fields = new int[FIELDS];
+        return value != null && scanDate(value, fields) ? toDate(fields) : null;
+    }
+
+    /**
+     * @return the parsed time on January 1, 1970, or <code>null</code> if <code>value</code> is not a time
+     */
+    static Date parseTime(CharSequence value) {
+        int[] fields = new int[FIELDS];
+        if (value == null || !scanTime(value, 0, fields)) {
+            return null;
+        }
+        fields[YEAR] = 1970;
+        fields[MONTH] = 1;
+        fields[DAY] = 1;
+        return toDate(fields);
+    }
+
+    /**
+     * Scans a date and an optional time, storing the values in <code>fields</code> unless it is <code>null</code>.
+     */
+    private static boolean scanDate(CharSequence value, int[] fields) {
+        int length = value.length();
+        if (length < 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return false;
+        }
+
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return false;
+        }
+        if (fields != null) {
+            fields[YEAR] = year;
+            fields[MONTH] = month;
+            fields[DAY] = day;
+            fields[OFFSET] = NO_OFFSET;
+        }
+
+        if (length == 10) {
+            return true;
+        }
+        return value.charAt(10) == 'T' && scanTime(value, 11, fields);
+    }
+
+    /**
+     * Scans a time and an optional offset from <code>start</code> to the end of the value, storing the values in
+     * <code>fields</code> unless it is <code>null</code>.
+     */
+    private static boolean scanTime(CharSequence value, int start, int[] fields) {
+        int length = value.length();
+        if (length < start + 5 || value.charAt(start + 2) != ':') {
+            return false;
+        }
+
+        int hour = digits(value, start, 2);
+        int minute = digits(value, start + 3, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return false;
+        }
+
+        int i = start + 5;
+        int second = 0;
+        int millisecond = 0;
+        if (i < length && value.charAt(i) == ':') {
+            second = digits(value, i + 1, 2);
+            if (second < 0 || second > 59) {
+                return false;
+            }
+            i += 3;
+
+            if (i < length && (value.charAt(i) == '.' || value.charAt(i) == ',')) {
+                int fractionStart = ++i;
+                while (i < length && isDigit(value.charAt(i))) {
+                    if (i - fractionStart < 3) {
+                        millisecond = millisecond * 10 + value.charAt(i) - '0';
+                    }
+                    i++;
+                }
+                int count = i - fractionStart;
+                if (count == 0 || count > MAX_FRACTION_DIGITS) {
+                    return false;
+                }
+                for (; count < 3; count++) {
+                    millisecond *= 10;
+                }
+            }
+        }
+
+        int offset = NO_OFFSET;
+        if (i < length) {
+            char sign = value.charAt(i);
+            if (sign == 'Z') {
+                offset = 0;
+                i++;
+            } else if (sign == '+' || sign == '-') {
+                int offsetHours = digits(value, i + 1, 2);
+                if (offsetHours < 0 || offsetHours > MAX_OFFSET_HOURS) {
+                    return false;
+                }
+                i += 3;
+
+                int offsetMinutes = 0;
+                if (i < length) {
+                    if (value.charAt(i) == ':') {
+                        i++;
+                    }
+                    offsetMinutes = digits(value, i, 2);
+                    if (offsetMinutes < 0 || offsetMinutes > 59) {
+                        return false;
+                    }
+                    i += 2;
+                }
+                offset = offsetHours * 60 + offsetMinutes;
+                if (sign == '-') {
+                    offset = -offset;
+                }
+            } else {
+                return false;
+            }
+        }
+        if (i != length) {
+            return false;
+        }
+
+        if (fields != null) {
+            fields[HOUR] = hour;
+            fields[MINUTE] = minute;
+            fields[SECOND] = second;
+            fields[MILLISECOND] = millisecond;
+            fields[OFFSET] = offset;
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of <code>count</code> ASCII digits at <code>start</code>, or -1 if there are not as many
+     */
+    private static int digits(CharSequence value, int start, int count) {
+        if (start + count > value.length()) {
+            return -1;
+        }
+
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            result = result * 10 + c - '0';
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    private static Date toDate(int[] fields) {
+        long timeOfDay = ((fields[HOUR] * 60L + fields[MINUTE]) * 60 + fields[SECOND]) * 1000 + fields[MILLISECOND];
+        if (fields[OFFSET] != NO_OFFSET) {
+            long days = daysSinceEpoch(fields[YEAR], fields[MONTH], fields[DAY]);
+            return new Date(days * 86400000L + timeOfDay - fields[OFFSET] * 60000L);
+        }
+
+        GregorianCalendar calendar = new GregorianCalendar();
+        calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+        calendar.clear();
+        calendar.set(fields[YEAR], fields[MONTH] - 1, fields[DAY], fields[HOUR], fields[MINUTE], fields[SECOND]);
+        calendar.set(Calendar.MILLISECOND, fields[MILLISECOND]);
+        return calendar.getTime();
+    }
+
+    /**
+     * @return the number of days between January 1, 1970 and a day of the proleptic Gregorian calendar
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds with a bounded relative error, in the manner of HdrHistogram.
+ * <p/>
+ * Values below {@link #SUB_BUCKETS} have a bucket each. Above that, every power of two is split into
+ * {@link #SUB_BUCKETS} buckets of equal width, so a value is known within about 3% whatever its magnitude. Values
+ * above {@link #MAX_VALUE}, about 18 minutes, are counted in the last bucket. Recording a value is a few bit
+ * operations and one atomic increment.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 39;
+    static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * @param nanos Latency to record; negative values are counted as zero
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(index(Math.min(Math.max(nanos, 0), MAX_VALUE)));
+    }
+
+    /**
+     * @return a copy of the bucket counts, to be read with {@link #valueAtQuantile}
+     */
+    long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * @param snapshot Bucket counts returned by {@link #snapshot}
+     * @param quantile Quantile between 0 and 1, for example 0.99
+     * @return the highest value of the bucket holding the quantile, or 0 if nothing was recorded
+     */
+    static long valueAtQuantile(long[] snapshot, double quantile) {
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return highestValue(snapshot.length - 1);
+    }
+
+    /**
+     * @return the highest value of the highest non empty bucket, or 0 if nothing was recorded
+     */
+    static long maxValue(long[] snapshot) {
+        for (int i = snapshot.length - 1; i >= 0; i--) {
+            if (snapshot[i] > 0) {
+                return highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
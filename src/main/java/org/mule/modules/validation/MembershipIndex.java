@@ -0,0 +1,232 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An immutable set of strings read from a memory-mapped file built by {@link MembershipListBuilder}, so that lists of
+ * tens of millions of entries take next to no heap. Lookups only read the mapped file and are safe without locking.
+ * <p/>
+ * The file holds a header, an open addressing hash table at most three quarters full and the entries. Each slot of the
+ * table is a long made of the top 24 bits of the hash of an entry and of the offset of the entry plus one, zero marking
+ * an empty slot; each entry is its length in bytes, as an unsigned short, followed by its UTF-8 bytes. All numbers are
+ * big endian. A lookup encodes the candidate into a per-thread buffer, probes the table and compares the bytes of the
+ * entries whose hash bits match.
+ * <p/>
+ * Files built case-insensitively hold entries with ASCII letters in lower case, and lookups fold the candidate the
+ * same way.
+ */
+final class MembershipIndex {
+    static final int MAGIC = 0x4D4C5354;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int IGNORE_CASE = 1;
+
+    /**
+     * Longest entry in UTF-8 bytes, limited by the length prefix of the entries.
+     */
+    static final int MAX_ENTRY_LENGTH = 0xFFFF;
+
+    static final int MAX_SLOT_BITS = 30;
+    static final int TAG_SHIFT = 40;
+    static final long OFFSET_MASK = (1L << TAG_SHIFT) - 1;
+
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[MAX_ENTRY_LENGTH];
+        }
+    };
+
+    private final ByteBuffer[] segments;
+    private final boolean ignoreCase;
+    private final int mask;
+    private final long size;
+    private final long dataStart;
+
+    private MembershipIndex(ByteBuffer[] segments, boolean ignoreCase, int slotBits, long size) {
+        this.segments = segments;
+        this.ignoreCase = ignoreCase;
+        this.mask = (1 << slotBits) - 1;
+        this.size = size;
+        this.dataStart = HEADER_SIZE + ((long) 1 << slotBits) * 8;
+    }
+
+    /**
+     * Maps a membership file. The mapping outlives the file, so a file replaced by renaming a new one over it can be
+     * read until this index is no longer referenced.
+     *
+     * @param file File built by {@link MembershipListBuilder}
+     * @return the index of the file
+     * @throws IOException if the file cannot be read or is not a membership file
+     */
+    static MembershipIndex open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException(file + " is not a membership file");
+            }
+
+            ByteBuffer[] segments = new ByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << SEGMENT_BITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_MASK + 1, length - position));
+            }
+
+            ByteBuffer header = segments[0];
+            int slotBits = header.getInt(12);
+            long size = header.getLong(16);
+            long dataLength = header.getLong(24);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || slotBits < 1 || slotBits > MAX_SLOT_BITS
+                    || length != HEADER_SIZE + ((long) 1 << slotBits) * 8 + dataLength) {
+                throw new IOException(file + " is not a membership file of version " + VERSION);
+            }
+            return new MembershipIndex(segments, (header.getInt(8) & IGNORE_CASE) != 0, slotBits, size);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * @return true if <code>value</code> is one of the entries
+     */
+    boolean contains(CharSequence value) {
+        byte[] bytes = BUFFERS.get();
+        int length = encode(value, ignoreCase, bytes);
+        if (length < 0) {
+            return false;
+        }
+
+        long hash = hash(bytes, length);
+        long tag = hash >>> TAG_SHIFT;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            long entry = getLong(HEADER_SIZE + ((long) slot << 3));
+            if (entry == 0) {
+                return false;
+            }
+            if (entry >>> TAG_SHIFT == tag && matches(bytes, length, dataStart + (entry & OFFSET_MASK) - 1)) {
+                return true;
+            }
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    private boolean matches(byte[] bytes, int length, long position) {
+        int entryLength = (get(position) & 0xFF) << 8 | get(position + 1) & 0xFF;
+        if (entryLength != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (get(position + 2 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Reads a slot of the table. Slots are aligned on eight bytes, so they never span two segments.
+     */
+    private long getLong(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Encodes a value in UTF-8, replacing unpaired surrogates with U+FFFD and folding ASCII upper case letters when
+     * <code>ignoreCase</code> is true. Both the builder and the lookups encode values with this method.
+     *
+     * @return the number of bytes written, or -1 if they do not fit in <code>bytes</code>
+     */
+    static int encode(CharSequence value, boolean ignoreCase, byte[] bytes) {
+        int length = value.length();
+        int limit = bytes.length;
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            int c = value.charAt(i);
+            if (c < 0x80) {
+                if (count == limit) {
+                    return -1;
+                }
+                if (ignoreCase && c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                bytes[count++] = (byte) c;
+                continue;
+            }
+
+            if (Character.isHighSurrogate((char) c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                c = Character.toCodePoint((char) c, value.charAt(++i));
+            } else if (Character.isSurrogate((char) c)) {
+                c = 0xFFFD;
+            }
+
+            if (c < 0x800) {
+                if (count + 2 > limit) {
+                    return -1;
+                }
+                bytes[count++] = (byte) (0xC0 | c >> 6);
+            } else if (c < 0x10000) {
+                if (count + 3 > limit) {
+                    return -1;
+                }
+                bytes[count++] = (byte) (0xE0 | c >> 12);
+                bytes[count++] = (byte) (0x80 | (c >> 6 & 0x3F));
+            } else {
+                if (count + 4 > limit) {
+                    return -1;
+                }
+                bytes[count++] = (byte) (0xF0 | c >> 18);
+                bytes[count++] = (byte) (0x80 | (c >> 12 & 0x3F));
+                bytes[count++] = (byte) (0x80 | (c >> 6 & 0x3F));
+            }
+            bytes[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return count;
+    }
+
+    /**
+     * FNV-1a over the bytes followed by the finalizer of MurmurHash3, so that both the low bits, which select the
+     * slot, and the high bits, which are kept in the slot, are well mixed.
+     */
+    static long hash(byte[] bytes, int length) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (bytes[i] & 0xFF)) * 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
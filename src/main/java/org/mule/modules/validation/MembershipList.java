@@ -0,0 +1,54 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A membership file that is mapped again when a new version of it appears, as described by {@link RefreshableFile}.
+ * <p/>
+ * Lookups running concurrently with a swap keep using the previous mapping, which is released once it is no longer
+ * referenced. New versions must replace the file by renaming, as {@link MembershipListBuilder} does, since a mapped
+ * file must not be written in place.
+ */
+final class MembershipList {
+    private static final RefreshableFile.Loader<MembershipIndex> LOADER = new RefreshableFile.Loader<MembershipIndex>() {
+        @Override
+        MembershipIndex load(File file) throws IOException {
+            return MembershipIndex.open(file);
+        }
+    };
+
+    private final RefreshableFile<MembershipIndex> list;
+
+    /**
+     * @param file            Membership file
+     * @param refreshInterval Minimum time between two checks of the file, or zero to map it only once
+     * @param unit            Unit of <code>refreshInterval</code>
+     * @throws IOException if the file cannot be read or is not a membership file
+     */
+    MembershipList(File file, long refreshInterval, TimeUnit unit) throws IOException {
+        list = new RefreshableFile<MembershipIndex>(file, refreshInterval, unit, LOADER);
+    }
+
+    /**
+     * @return true if <code>value</code> is in the current version of the list
+     */
+    boolean contains(String value) {
+        return value != null && list.current().contains(value);
+    }
+
+    long size() {
+        return list.current().size();
+    }
+}
@@ -0,0 +1,284 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Builds the membership files used by the <code>validate-membership</code> processor from text files listing one entry
+ * per line. Lines are trimmed, and empty lines and lines starting with <code>#</code> are skipped. Duplicates are
+ * kept once.
+ * <p/>
+ * The builder is meant to run offline, for example:
+ * <pre>
+ * java -cp mule-module-validation.jar org.mule.modules.validation.MembershipListBuilder [--ignore-case] accounts.txt accounts.idx
+ * </pre>
+ * The file is written next to its destination and then renamed over it, so a module refreshing the list never reads
+ * a partly written file. The builder holds the hash table in memory, eight bytes per slot, while the entries are
+ * staged in a temporary file.
+ */
+public final class MembershipListBuilder {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private MembershipListBuilder() {
+    }
+
+    /**
+     * Builds a membership file.
+     *
+     * @param input      Text file listing the entries in UTF-8
+     * @param output     Membership file to create or replace
+     * @param ignoreCase Whether lookups ignore the case of ASCII letters
+     * @return the number of distinct entries
+     * @throws IOException if a file cannot be read or written, or an entry is longer than 65535 bytes in UTF-8
+     */
+    public static long build(File input, File output, boolean ignoreCase) throws IOException {
+        int slotBits = slotBits(countEntries(input));
+        long[] slots = new long[1 << slotBits];
+        int mask = slots.length - 1;
+
+        File directory = output.getAbsoluteFile().getParentFile();
+        File entriesFile = File.createTempFile(output.getName(), ".entries", directory);
+        File staged = File.createTempFile(output.getName(), ".tmp", directory);
+        try {
+            long size = 0;
+            Entries entries = new Entries(entriesFile);
+            try {
+                byte[] bytes = new byte[MembershipIndex.MAX_ENTRY_LENGTH];
+                BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), "UTF-8"));
+                try {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        String entry = entry(line);
+                        if (entry == null) {
+                            continue;
+                        }
+                        int length = MembershipIndex.encode(entry, ignoreCase, bytes);
+                        if (length < 0) {
+                            throw new IOException("Entry '" + entry.substring(0, 32) + "...' is longer than " + MembershipIndex.MAX_ENTRY_LENGTH + " bytes");
+                        }
+                        if (insert(slots, mask, bytes, length, entries)) {
+                            size++;
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+
+                write(staged, slots, slotBits, size, ignoreCase, entries);
+            } finally {
+                entries.close();
+            }
+
+            Files.move(staged.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        } finally {
+            entriesFile.delete();
+            staged.delete();
+        }
+    }
+
+    /**
+     * Builds a membership file from the command line.
+     *
+     * @param args <code>[--ignore-case] input output</code>
+     * @throws IOException if the file cannot be built
+     */
+    public static void main(String[] args) throws IOException {
+        boolean ignoreCase = args.length == 3 && "--ignore-case".equals(args[0]);
+        if (args.length != (ignoreCase ? 3 : 2)) {
+            System.err.println("Usage: MembershipListBuilder [--ignore-case] input output");
+            System.exit(2);
+        }
+
+        int first = ignoreCase ? 1 : 0;
+        long size = build(new File(args[first]), new File(args[first + 1]), ignoreCase);
+        System.out.println(size + " entries written to " + args[first + 1]);
+    }
+
+    private static String entry(String line) {
+        String entry = line.trim();
+        return entry.length() == 0 || entry.charAt(0) == '#' ? null : entry;
+    }
+
+    private static long countEntries(File input) throws IOException {
+        long count = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), "UTF-8"));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (entry(line) != null) {
+                    count++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of bits of the smallest table that is at most three quarters full
+     */
+    private static int slotBits(long count) throws IOException {
+        int bits = 1;
+        while (((long) 1 << bits) * 3 < count * 4 + 4) {
+            bits++;
+            if (bits > MembershipIndex.MAX_SLOT_BITS) {
+                throw new IOException("Too many entries: " + count);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Adds an entry to the table unless it is already there.
+     *
+     * @return true if the entry was added
+     */
+    private static boolean insert(long[] slots, int mask, byte[] bytes, int length, Entries entries) throws IOException {
+        long hash = MembershipIndex.hash(bytes, length);
+        long tag = hash >>> MembershipIndex.TAG_SHIFT;
+        int slot = (int) hash & mask;
+        for (long slotValue = slots[slot]; slotValue != 0; slotValue = slots[slot]) {
+            if (slotValue >>> MembershipIndex.TAG_SHIFT == tag && entries.matches((slotValue & MembershipIndex.OFFSET_MASK) - 1, bytes, length)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        long offset = entries.append(bytes, length);
+        if (offset + 1 > MembershipIndex.OFFSET_MASK) {
+            throw new IOException("The entries exceed " + MembershipIndex.OFFSET_MASK + " bytes");
+        }
+        slots[slot] = tag << MembershipIndex.TAG_SHIFT | (offset + 1);
+        return true;
+    }
+
+    private static void write(File file, long[] slots, int slotBits, long size, boolean ignoreCase, Entries entries) throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            FileChannel channel = output.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.putInt(MembershipIndex.MAGIC);
+            buffer.putInt(MembershipIndex.VERSION);
+            buffer.putInt(ignoreCase ? MembershipIndex.IGNORE_CASE : 0);
+            buffer.putInt(slotBits);
+            buffer.putLong(size);
+            buffer.putLong(entries.length());
+
+            for (long slot : slots) {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(slot);
+            }
+            flush(channel, buffer);
+
+            entries.transferTo(channel);
+        } finally {
+            output.close();
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * The entries written so far, each as its length followed by its bytes, in a temporary file that is read back to
+     * tell duplicates apart from entries that merely share the hash bits kept in the table.
+     */
+    private static final class Entries {
+        private final RandomAccessFile file;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final byte[] candidate = new byte[MembershipIndex.MAX_ENTRY_LENGTH + 2];
+        private int buffered;
+        private long flushed;
+
+        private Entries(File file) throws IOException {
+            this.file = new RandomAccessFile(file, "rw");
+        }
+
+        long length() {
+            return flushed + buffered;
+        }
+
+        long append(byte[] bytes, int length) throws IOException {
+            long offset = length();
+            if (buffered + length + 2 > buffer.length) {
+                flush();
+            }
+            if (length + 2 > buffer.length) {
+                file.seek(flushed);
+                file.writeShort(length);
+                file.write(bytes, 0, length);
+                flushed += length + 2;
+                return offset;
+            }
+
+            buffer[buffered++] = (byte) (length >>> 8);
+            buffer[buffered++] = (byte) length;
+            System.arraycopy(bytes, 0, buffer, buffered, length);
+            buffered += length;
+            return offset;
+        }
+
+        boolean matches(long offset, byte[] bytes, int length) throws IOException {
+            flush();
+            file.seek(offset);
+            if (file.readUnsignedShort() != length) {
+                return false;
+            }
+            file.readFully(candidate, 0, length);
+            for (int i = 0; i < length; i++) {
+                if (candidate[i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void transferTo(FileChannel channel) throws IOException {
+            flush();
+            FileChannel source = file.getChannel();
+            long position = 0;
+            while (position < flushed) {
+                position += source.transferTo(position, flushed - position, channel);
+            }
+        }
+
+        void close() throws IOException {
+            file.close();
+        }
+
+        private void flush() throws IOException {
+            if (buffered > 0) {
+                file.seek(flushed);
+                file.write(buffer, 0, buffered);
+                flushed += buffered;
+                buffered = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * An ordered list of regular expressions that tells which of them is the first to match a whole value.
+ * <p/>
+ * By default each expression is tried in turn with {@link Pattern}, as done by the commons
+ * <code>RegexValidator</code>. A combined set compiles the expressions it can into a single {@link RegexAutomaton},
+ * which matches all of them in one pass over the value; only the remaining expressions, such as those using back
+ * references or lookarounds, are tried in turn.
+ * <p/>
+ * {@link Pattern} backtracks, which takes exponential time for some expressions and values. A step limit bounds the
+ * number of characters that matching a value with one expression may read; an expression that exceeds it is
+ * considered not to match.
+ */
+final class PatternSet {
+    static final int NO_MATCH = -1;
+
+    private final Pattern[] patterns;
+    private final RegexAutomaton automaton;
+    private final int[] backtracking;
+
+    private PatternSet(Pattern[] patterns, RegexAutomaton automaton, int[] backtracking) {
+        this.patterns = patterns;
+        this.automaton = automaton;
+        this.backtracking = backtracking;
+    }
+
+    /**
+     * Compiles a list of regular expressions.
+     *
+     * @param regexs        Regular expressions
+     * @param caseSensitive when false ASCII letters match regardless of their case
+     * @param combined      when true the expressions are compiled into a single automaton where possible
+     * @return the compiled set
+     * @throws IllegalArgumentException if the list is empty or contains <code>null</code>
+     * @throws java.util.regex.PatternSyntaxException if an expression is not valid
+     */
+    static PatternSet compile(List<String> regexs, boolean caseSensitive, boolean combined) {
+        if (regexs == null || regexs.isEmpty()) {
+            throw new IllegalArgumentException("Regular expressions are missing");
+        }
+
+        Pattern[] patterns = new Pattern[regexs.size()];
+        for (int i = 0; i < patterns.length; i++) {
+            String regex = regexs.get(i);
+            if (regex == null || regex.length() == 0) {
+                throw new IllegalArgumentException("Regular expression[" + i + "] is missing");
+            }
+            patterns[i] = Pattern.compile(regex, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
+        }
+
+        boolean[] compiled = new boolean[patterns.length];
+        RegexAutomaton automaton = combined ? RegexAutomaton.compile(regexs, caseSensitive, compiled) : null;
+
+        int count = 0;
+        int[] backtracking = new int[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            if (!compiled[i]) {
+                backtracking[count++] = i;
+            }
+        }
+        int[] remaining = new int[count];
+        System.arraycopy(backtracking, 0, remaining, 0, count);
+        return new PatternSet(patterns, automaton, remaining);
+    }
+
+    /**
+     * Returns the index of the first expression that matches the whole value.
+     *
+     * @param value     Value to match
+     * @param stepLimit Maximum number of characters read by a backtracking match, or zero for no limit
+     * @return the index of the matching expression, or {@link #NO_MATCH}
+     */
+    int match(String value, int stepLimit) {
+        if (value == null) {
+            return NO_MATCH;
+        }
+
+        if (automaton != null) {
+            int matched = automaton.match(value);
+            if (matched != RegexAutomaton.UNDECIDED) {
+                for (int index : backtracking) {
+                    if (matched != NO_MATCH && index > matched) {
+                        break;
+                    }
+                    if (matches(patterns[index], value, stepLimit)) {
+                        return index;
+                    }
+                }
+                return matched;
+            }
+        }
+
+        for (int i = 0; i < patterns.length; i++) {
+            if (matches(patterns[i], value, stepLimit)) {
+                return i;
+            }
+        }
+        return NO_MATCH;
+    }
+
+    private static boolean matches(Pattern pattern, String value, int stepLimit) {
+        if (stepLimit <= 0) {
+            return pattern.matcher(value).matches();
+        }
+        try {
+            return pattern.matcher(new StepLimitedSequence(value, stepLimit)).matches();
+        } catch (StepLimitExceededException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A value that counts the characters read from it and stops the match once the limit is exceeded.
+     */
+    private static final class StepLimitedSequence implements CharSequence {
+        private final String value;
+        private int remainingSteps;
+
+        private StepLimitedSequence(String value, int stepLimit) {
+            this.value = value;
+            this.remainingSteps = stepLimit;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--remainingSteps < 0) {
+                throw STEP_LIMIT_EXCEEDED;
+            }
+            return value.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return value.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return value.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    private static final class StepLimitExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private StepLimitExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final StepLimitExceededException STEP_LIMIT_EXCEEDED = new StepLimitExceededException();
+}
@@ -0,0 +1,53 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+/**
+ * The live counters and latency histogram of a processor, across all flows or within one flow.
+ */
+final class ProcessorMetrics {
+    private final StripedCounter passes = new StripedCounter();
+    private final StripedCounter failures = new StripedCounter();
+    private final StripedCounter totalNanos = new StripedCounter();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    void record(boolean valid, long nanos) {
+        if (valid) {
+            passes.increment();
+        } else {
+            failures.increment();
+        }
+        totalNanos.add(nanos);
+        latencies.record(nanos);
+    }
+
+    ProcessorStatistics statistics(String processorName, String flowName) {
+        long passCount = passes.sum();
+        long failureCount = failures.sum();
+        long invocations = passCount + failureCount;
+        long[] snapshot = latencies.snapshot();
+
+        return new ProcessorStatistics(processorName, flowName, passCount, failureCount,
+                invocations == 0 ? 0.0 : (double) totalNanos.sum() / invocations,
+                LatencyHistogram.valueAtQuantile(snapshot, 0.5),
+                LatencyHistogram.valueAtQuantile(snapshot, 0.9),
+                LatencyHistogram.valueAtQuantile(snapshot, 0.99),
+                LatencyHistogram.valueAtQuantile(snapshot, 0.999),
+                LatencyHistogram.maxValue(snapshot));
+    }
+
+    void reset() {
+        passes.reset();
+        failures.reset();
+        totalNanos.reset();
+        latencies.reset();
+    }
+}
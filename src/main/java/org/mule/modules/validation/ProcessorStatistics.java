@@ -0,0 +1,108 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+/**
+ * Point-in-time snapshot of the metrics of one processor of {@link ValidationModule}, either across all flows or
+ * within a single flow. Latencies are those of the check itself, in nanoseconds, and are accurate within about 3%.
+ */
+public final class ProcessorStatistics {
+    private final String processorName;
+    private final String flowName;
+    private final long passCount;
+    private final long failureCount;
+    private final double latencyMean;
+    private final long latencyP50;
+    private final long latencyP90;
+    private final long latencyP99;
+    private final long latencyP999;
+    private final long latencyMax;
+
+    public ProcessorStatistics(String processorName, String flowName, long passCount, long failureCount,
+                               double latencyMean, long latencyP50, long latencyP90, long latencyP99, long latencyP999,
+                               long latencyMax) {
+        this.processorName = processorName;
+        this.flowName = flowName;
+        this.passCount = passCount;
+        this.failureCount = failureCount;
+        this.latencyMean = latencyMean;
+        this.latencyP50 = latencyP50;
+        this.latencyP90 = latencyP90;
+        this.latencyP99 = latencyP99;
+        this.latencyP999 = latencyP999;
+        this.latencyMax = latencyMax;
+    }
+
+    /**
+     * @return the element name of the processor, such as <code>validate-email</code>
+     */
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    /**
+     * @return the name of the flow, or <code>null</code> for the totals of the processor across all flows
+     */
+    public String getFlowName() {
+        return flowName;
+    }
+
+    public long getInvocationCount() {
+        return passCount + failureCount;
+    }
+
+    public long getPassCount() {
+        return passCount;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return ratio of invocations that found the value invalid, or <code>0</code> when the processor was never used
+     */
+    public double getFailureRate() {
+        long invocations = getInvocationCount();
+        return invocations == 0 ? 0.0 : (double) failureCount / invocations;
+    }
+
+    public double getLatencyMean() {
+        return latencyMean;
+    }
+
+    public long getLatencyP50() {
+        return latencyP50;
+    }
+
+    public long getLatencyP90() {
+        return latencyP90;
+    }
+
+    public long getLatencyP99() {
+        return latencyP99;
+    }
+
+    public long getLatencyP999() {
+        return latencyP999;
+    }
+
+    public long getLatencyMax() {
+        return latencyMax;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessorStatistics[processor=" + processorName + ", flow=" + flowName + ", passes=" + passCount +
+                ", failures=" + failureCount + ", p50=" + latencyP50 + "ns, p99=" + latencyP99 + "ns, max=" +
+                latencyMax + "ns]";
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Stream of the valid records of a line-delimited input stream.
+ * <p/>
+ * Records are read, validated and copied one at a time as the stream is consumed, so memory use is bounded by the
+ * length of the longest record regardless of the size of the input. Valid records are copied byte for byte, with the
+ * line terminator they had in the input: <code>\n</code>, <code>\r\n</code>, <code>\r</code> or none for a last
+ * line without one. Header lines are passed through without being validated. Invalid records are reported to a
+ * {@link RecordRejections} instead of being written to the stream.
+ * <p/>
+ * Every line terminator ends a record, even inside a quoted field, so quoted fields spanning several lines are not
+ * supported. The encoding must write line terminators as single bytes, as ASCII, UTF-8 and the ISO-8859 encodings do.
+ */
+final class RecordFilterInputStream extends InputStream {
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final int CHUNK_SIZE = 8192;
+
+    private final InputStream input;
+    private final Charset charset;
+    private final RecordPlan plan;
+    private final char delimiter;
+    private final int headerLines;
+    private final RecordRejections rejections;
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int chunkPosition;
+    private int chunkLimit;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private int position;
+    private int limit;
+    private long lineNumber;
+    private boolean eof;
+
+    /**
+     * @throws IllegalArgumentException if the charset does not write line terminators as single bytes
+     */
+    RecordFilterInputStream(InputStream input, Charset charset, RecordPlan plan, char delimiter, int headerLines, RecordRejections rejections) {
+        if (!Arrays.equals("\r\n".getBytes(charset), new byte[]{CR, LF})) {
+            throw new IllegalArgumentException("Encoding " + charset.name() + " is not supported by validate-records, line terminators must be single bytes");
+        }
+        this.input = input;
+        this.charset = charset;
+        this.plan = plan;
+        this.delimiter = delimiter;
+        this.headerLines = headerLines;
+        this.rejections = rejections;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return line[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(length, limit - position);
+        System.arraycopy(line, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        eof = true;
+        input.close();
+    }
+
+    /**
+     * Makes sure the buffer holds unread bytes, reading records until a valid one is found.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        while (position >= limit) {
+            position = 0;
+            limit = 0;
+            if (eof) {
+                return false;
+            }
+
+            int terminatorLength = readLine();
+            if (terminatorLength < 0) {
+                eof = true;
+                rejections.complete();
+                return false;
+            }
+
+            lineNumber++;
+            if (lineNumber > headerLines) {
+                rejections.recordRead();
+                String record = new String(line, 0, lineLength - terminatorLength, charset);
+                String failedRule = plan.validate(record, delimiter);
+                if (failedRule != null) {
+                    rejections.reject(lineNumber, record, failedRule);
+                    continue;
+                }
+            }
+
+            limit = lineLength;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next line into the line buffer, terminator included.
+     *
+     * @return the length of the terminator of the line, or -1 at the end of the stream
+     */
+    private int readLine() throws IOException {
+        lineLength = 0;
+        while (true) {
+            if (chunkPosition >= chunkLimit && !refill()) {
+                return lineLength == 0 ? -1 : 0;
+            }
+
+            int start = chunkPosition;
+            int end = start;
+            while (end < chunkLimit && chunk[end] != LF && chunk[end] != CR) {
+                end++;
+            }
+            if (end == chunkLimit) {
+                append(start, end);
+                chunkPosition = end;
+                continue;
+            }
+
+            append(start, end + 1);
+            chunkPosition = end + 1;
+            if (chunk[end] == LF) {
+                return 1;
+            }
+            if ((chunkPosition < chunkLimit || refill()) && chunk[chunkPosition] == LF) {
+                append(chunkPosition, chunkPosition + 1);
+                chunkPosition++;
+                return 2;
+            }
+            return 1;
+        }
+    }
+
+    private void append(int start, int end) {
+        int length = end - start;
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(chunk, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    /**
+     * @return false at the end of the input
+     */
+    private boolean refill() throws IOException {
+        int count;
+        do {
+            count = input.read(chunk, 0, chunk.length);
+        } while (count == 0);
+        if (count < 0) {
+            return false;
+        }
+        chunkPosition = 0;
+        chunkLimit = count;
+        return true;
+    }
+}
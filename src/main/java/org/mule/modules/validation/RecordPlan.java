@@ -0,0 +1,147 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, compiled list of rules applied to the fields of delimited text records.
+ * <p/>
+ * Each entry has the form <code>column =&gt; rule</code>, where the column is the zero-based position of the field in
+ * the record, or <code>*</code> to apply the rule to the whole record. Fields may be enclosed in double quotes, in
+ * which case the delimiter may appear inside the field and a doubled quote stands for a literal quote.
+ */
+final class RecordPlan {
+    static final int WHOLE_RECORD = -1;
+
+    private final int[] columns;
+    private final Rule[] rules;
+    private final String[] definitions;
+
+    private RecordPlan(int[] columns, Rule[] rules, String[] definitions) {
+        this.columns = columns;
+        this.rules = rules;
+        this.definitions = definitions;
+    }
+
+    /**
+     * @param entries        Entries of the form <code>column =&gt; rule</code>
+     * @param prepared       Rules compiled at startup, reused instead of compiling their definitions again
+     * @param domains        Known top-level domains, or <code>null</code> to use the list of the commons validators
+     * @param regexStepLimit Maximum number of characters read by a <code>regex</code> match, or zero for no limit
+     * @return the compiled plan
+     * @throws IllegalArgumentException if one of the entries is not valid
+     */
+    static RecordPlan compile(List<String> entries, Map<String, Rule> prepared, TopLevelDomains domains, int regexStepLimit) {
+        int size = entries.size();
+        int[] columns = new int[size];
+        Rule[] rules = new Rule[size];
+        String[] definitions = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            String entry = entries.get(i);
+            int separator = entry == null ? -1 : entry.indexOf(RulePlan.SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Rule '" + entry + "' must have the form 'column " + RulePlan.SEPARATOR + " rule'");
+            }
+
+            String column = entry.substring(0, separator).trim();
+            if ("*".equals(column)) {
+                columns[i] = WHOLE_RECORD;
+            } else {
+                try {
+                    columns[i] = Integer.parseInt(column);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Column '" + column + "' of rule '" + entry + "' must be a number or '*'");
+                }
+                if (columns[i] < 0) {
+                    throw new IllegalArgumentException("Column '" + column + "' of rule '" + entry + "' cannot be negative");
+                }
+            }
+            definitions[i] = entry.trim();
+            rules[i] = Rules.compile(entry.substring(separator + RulePlan.SEPARATOR.length()), prepared, domains, regexStepLimit);
+        }
+
+        return new RecordPlan(columns, rules, definitions);
+    }
+
+    /**
+     * @param record    Record to validate
+     * @param delimiter Field delimiter
+     * @return the definition of the first failing rule, or <code>null</code> if the record is valid
+     */
+    String validate(String record, char delimiter) {
+        for (int i = 0; i < rules.length; i++) {
+            Object value = columns[i] == WHOLE_RECORD ? record : field(record, columns[i], delimiter);
+            if (!rules[i].isValid(value)) {
+                return definitions[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extracts a single field without splitting the whole record.
+     *
+     * @return the field, or <code>null</code> if the record has fewer fields
+     */
+    static String field(String record, int column, char delimiter) {
+        int length = record.length();
+        int position = 0;
+        for (int current = 0; current < column; current++) {
+            position = skipField(record, position, delimiter);
+            if (position >= length) {
+                return null;
+            }
+            position++;
+        }
+
+        if (position < length && record.charAt(position) == '"') {
+            StringBuilder builder = new StringBuilder();
+            for (int i = position + 1; i < length; i++) {
+                char c = record.charAt(i);
+                if (c == '"') {
+                    if (i + 1 < length && record.charAt(i + 1) == '"') {
+                        builder.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    builder.append(c);
+                }
+            }
+            return builder.toString();
+        }
+
+        int end = record.indexOf(delimiter, position);
+        return record.substring(position, end < 0 ? length : end);
+    }
+
+    /**
+     * @return the position of the delimiter ending the field that starts at <code>position</code>, or the length of
+     *         the record for the last field
+     */
+    private static int skipField(String record, int position, char delimiter) {
+        int length = record.length();
+        boolean quoted = false;
+        for (int i = position; i < length; i++) {
+            char c = record.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == delimiter && !quoted) {
+                return i;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the records rejected while a stream is validated by
+ * {@link ValidationModule#validateRecords}. The collection is filled as the filtered stream is consumed, so it is only
+ * complete once the stream has been read to the end.
+ * <p/>
+ * At most <code>maxRejects</code> records are retained to keep memory bounded; {@link #getRejectedCount()} always
+ * reports the total number of rejected records.
+ */
+public final class RecordRejections {
+    private final int maxRejects;
+    private final List<Rejection> rejections = new ArrayList<Rejection>();
+    private long rejectedCount;
+    private long recordCount;
+    private boolean complete;
+
+    RecordRejections(int maxRejects) {
+        this.maxRejects = maxRejects;
+    }
+
+    synchronized void reject(long lineNumber, String record, String rule) {
+        rejectedCount++;
+        if (rejections.size() < maxRejects) {
+            rejections.add(new Rejection(lineNumber, record, rule));
+        }
+    }
+
+    synchronized void recordRead() {
+        recordCount++;
+    }
+
+    synchronized void complete() {
+        complete = true;
+    }
+
+    /**
+     * @return the retained rejections, in the order of the stream
+     */
+    public synchronized List<Rejection> getRejections() {
+        return Collections.unmodifiableList(new ArrayList<Rejection>(rejections));
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return number of records read so far, header lines excluded
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return true once the whole stream has been read
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RecordRejections[records=" + recordCount + ", rejected=" + rejectedCount + ", complete=" + complete + "]";
+    }
+
+    /**
+     * A rejected record.
+     */
+    public static final class Rejection {
+        private final long lineNumber;
+        private final String record;
+        private final String rule;
+
+        Rejection(long lineNumber, String record, String rule) {
+            this.lineNumber = lineNumber;
+            this.record = record;
+            this.rule = rule;
+        }
+
+        /**
+         * @return the line number of the record, starting at one
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getRecord() {
+            return record;
+        }
+
+        /**
+         * @return definition of the first rule the record failed
+         */
+        public String getRule() {
+            return rule;
+        }
+
+        @Override
+        public String toString() {
+            return lineNumber + ": " + rule;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The content of a file, loaded again when a new version of the file appears.
+ * <p/>
+ * At most once per refresh interval, {@link #current()} checks whether the modification time of the file changed and
+ * if so loads the file again and swaps the new content in atomically; callers running concurrently keep using the
+ * previous content. If the new version cannot be loaded the previous content is kept and the file is checked again
+ * after the next interval.
+ */
+final class RefreshableFile<T> {
+    /**
+     * Loads the content of a version of the file.
+     */
+    abstract static class Loader<T> {
+        /**
+         * @param file File to load
+         * @return the content of the file
+         * @throws IOException if the file cannot be read or its content is not acceptable
+         */
+        abstract T load(File file) throws IOException;
+    }
+
+    private final File file;
+    private final long refreshIntervalMillis;
+    private final Loader<T> loader;
+    private final AtomicReference<T> content = new AtomicReference<T>();
+    private final AtomicLong nextCheck = new AtomicLong();
+    private volatile long lastModified;
+    private volatile long version;
+
+    /**
+     * @param file            File to load
+     * @param refreshInterval Minimum time between two checks of the file, or zero to load it only once
+     * @param unit            Unit of <code>refreshInterval</code>
+     * @param loader          Loader of the content of the file
+     * @throws IOException if the file cannot be loaded
+     */
+    RefreshableFile(File file, long refreshInterval, TimeUnit unit, Loader<T> loader) throws IOException {
+        this.file = file;
+        this.refreshIntervalMillis = unit.toMillis(refreshInterval);
+        this.loader = loader;
+
+        long modified = file.lastModified();
+        content.set(loader.load(file));
+        lastModified = modified;
+        nextCheck.set(System.currentTimeMillis() + refreshIntervalMillis);
+    }
+
+    /**
+     * @return the content of the latest version of the file that could be loaded
+     */
+    T current() {
+        if (refreshIntervalMillis > 0) {
+            long next = nextCheck.get();
+            long now = System.currentTimeMillis();
+            if (now >= next && nextCheck.compareAndSet(next, now + refreshIntervalMillis)) {
+                refresh();
+            }
+        }
+        return content.get();
+    }
+
+    /**
+     * Checks the file for a new version like {@link #current()} does.
+     *
+     * @return the number of times a new version replaced the content loaded at creation
+     */
+    long version() {
+        current();
+        return version;
+    }
+
+    private void refresh() {
+        long modified = file.lastModified();
+        if (modified == lastModified) {
+            return;
+        }
+        try {
+            content.set(loader.load(file));
+            lastModified = modified;
+            version++;
+        } catch (IOException e) {
+            // keep the current content, the file is checked again at the next interval
+        }
+    }
+}
@@ -0,0 +1,955 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A set of regular expressions compiled into one automaton that tells which of them match a whole value in a single
+ * pass over its characters.
+ * <p/>
+ * The expressions are parsed into a nondeterministic automaton (NFA) with one accepting node per expression. Its
+ * deterministic states are built lazily: a state is the set of NFA nodes active after some input, and the transitions
+ * of a state are computed the first time a character of each equivalence class is read in that state. Matching is
+ * therefore linear in the length of the value, whatever the number of expressions.
+ * <p/>
+ * At most {@link #MAX_STATES} states are built. Once they all exist, transitions between them are still followed
+ * without locking, but a value that needs a transition not computed yet is not decided by the automaton:
+ * {@link #match} returns {@link #UNDECIDED} and the caller matches the value with {@link java.util.regex.Pattern}
+ * instead. This keeps flow threads from contending for the lock that guards the construction of states, and from
+ * allocating a new state for each character, when a large set of expressions needs more states than the budget.
+ * <p/>
+ * Only the constructs of {@link java.util.regex.Pattern} that describe a regular language are supported: literals,
+ * escapes, character classes without intersections, <code>.</code>, groups, alternations and greedy or lazy
+ * quantifiers. <code>^</code> and <code>$</code> are accepted where they can only be at the start or at the end of
+ * the value. Other expressions are left out of the automaton by {@link #compile}.
+ */
+final class RegexAutomaton {
+    /**
+     * Returned by {@link #match} when the value contains surrogate characters, which {@link java.util.regex.Pattern}
+     * matches as code points, or when matching it needs a state beyond {@link #MAX_STATES}.
+     */
+    static final int UNDECIDED = -2;
+
+    private static final int MAX_NODES = 10000;
+    private static final int MAX_STATES = 1024;
+
+    private static final int CHARS = 0;
+    private static final int SPLIT = 1;
+    private static final int MATCH = 2;
+
+    private final int[] kinds;
+    private final int[] outs;
+    private final int[] alternatives;
+    private final BitSet[] classSets;
+    private final int[] boundaries;
+    private final int[] asciiClasses = new int[128];
+
+    private final Map<StateKey, State> states = new HashMap<StateKey, State>();
+    private final int[] marks;
+    private int generation;
+    private volatile boolean full;
+    private final State start;
+
+    private RegexAutomaton(Builder builder) {
+        int size = builder.size;
+        kinds = Arrays.copyOf(builder.kinds, size);
+        outs = Arrays.copyOf(builder.outs, size);
+        alternatives = Arrays.copyOf(builder.alternatives, size);
+        marks = new int[size];
+
+        boundaries = boundaries(builder.sets, size);
+        for (int c = 0; c < asciiClasses.length; c++) {
+            asciiClasses[c] = classOf(c);
+        }
+
+        classSets = new BitSet[size];
+        Map<CharSet, BitSet> shared = new IdentityHashMap<CharSet, BitSet>();
+        for (int node = 0; node < size; node++) {
+            CharSet set = builder.sets[node];
+            if (set != null) {
+                BitSet classes = shared.get(set);
+                if (classes == null) {
+                    classes = new BitSet(boundaries.length);
+                    for (int i = 0; i < set.ranges.length; i += 2) {
+                        classes.set(classOf(set.ranges[i]), classOf(set.ranges[i + 1]) + 1);
+                    }
+                    shared.put(set, classes);
+                }
+                classSets[node] = classes;
+            }
+        }
+
+        synchronized (this) {
+            start = state(new int[] {builder.start});
+        }
+    }
+
+    /**
+     * Compiles the supported expressions of a list into one automaton.
+     *
+     * @param regexs        Regular expressions, already known to be valid for {@link java.util.regex.Pattern}
+     * @param caseSensitive when false ASCII letters match regardless of their case
+     * @param compiled      Receives, for each expression, whether it is part of the automaton
+     * @return the automaton, or <code>null</code> if no expression is supported
+     */
+    static RegexAutomaton compile(List<String> regexs, boolean caseSensitive, boolean[] compiled) {
+        Node[] expressions = new Node[regexs.size()];
+        long size = 0;
+        for (int i = 0; i < expressions.length; i++) {
+            try {
+                Node node = new Parser(regexs.get(i), caseSensitive).parse();
+                if (anchorsAtBoundaries(node, false, false) && size + node.size() <= MAX_NODES) {
+                    expressions[i] = node;
+                    size += node.size();
+                }
+            } catch (UnsupportedConstructException e) {
+                // Matched by backtracking
+            }
+            compiled[i] = expressions[i] != null;
+        }
+
+        Builder builder = new Builder();
+        int start = -1;
+        for (int i = expressions.length - 1; i >= 0; i--) {
+            if (expressions[i] != null) {
+                int expression = expressions[i].build(builder, builder.add(MATCH, null, i, -1));
+                start = start < 0 ? expression : builder.add(SPLIT, null, expression, start);
+            }
+        }
+        if (start < 0) {
+            return null;
+        }
+        builder.start = start;
+        return new RegexAutomaton(builder);
+    }
+
+    /**
+     * Matches a whole value.
+     *
+     * @param value Value to match
+     * @return the lowest index of the compiled expressions matching the value, {@link PatternSet#NO_MATCH} or
+     *         {@link #UNDECIDED}
+     */
+    int match(CharSequence value) {
+        State state = start;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return UNDECIDED;
+            }
+
+            int characterClass = c < 128 ? asciiClasses[c] : classOf(c);
+            State next = state.next.get(characterClass);
+            if (next == null) {
+                next = full ? null : transition(state, characterClass);
+                if (next == null) {
+                    return UNDECIDED;
+                }
+            }
+            if (next.nodes.length == 0 && i < length - 1) {
+                return PatternSet.NO_MATCH;
+            }
+            state = next;
+        }
+        return state.accept;
+    }
+
+    private int classOf(int c) {
+        int low = 0;
+        int high = boundaries.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (boundaries[middle] <= c) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private static int[] boundaries(CharSet[] sets, int size) {
+        int[] points = new int[16];
+        int count = 0;
+        points[count++] = 0;
+        for (int node = 0; node < size; node++) {
+            CharSet set = sets[node];
+            if (set == null) {
+                continue;
+            }
+            for (int i = 0; i < set.ranges.length; i += 2) {
+                if (count + 2 > points.length) {
+                    points = Arrays.copyOf(points, points.length * 2);
+                }
+                points[count++] = set.ranges[i];
+                if (set.ranges[i + 1] < Character.MAX_VALUE) {
+                    points[count++] = set.ranges[i + 1] + 1;
+                }
+            }
+        }
+
+        Arrays.sort(points, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || points[i] != points[unique - 1]) {
+                points[unique++] = points[i];
+            }
+        }
+        return Arrays.copyOf(points, unique);
+    }
+
+    private synchronized State transition(State state, int characterClass) {
+        State next = state.next.get(characterClass);
+        if (next != null) {
+            return next;
+        }
+
+        int[] seeds = new int[state.nodes.length];
+        int count = 0;
+        for (int node : state.nodes) {
+            if (classSets[node].get(characterClass)) {
+                seeds[count++] = outs[node];
+            }
+        }
+        next = state(Arrays.copyOf(seeds, count));
+        if (next != null) {
+            state.next.set(characterClass, next);
+        }
+        return next;
+    }
+
+    /**
+     * Returns the state reached by following the empty transitions from the seed nodes, or <code>null</code> if it
+     * does not exist yet and {@link #MAX_STATES} states already do. Called with the lock held.
+     */
+    private State state(int[] seeds) {
+        int generation = ++this.generation;
+        int[] stack = new int[kinds.length * 2 + seeds.length];
+        int[] nodes = new int[kinds.length];
+        int top = 0;
+        int count = 0;
+        int accept = PatternSet.NO_MATCH;
+        for (int seed : seeds) {
+            stack[top++] = seed;
+        }
+        while (top > 0) {
+            int node = stack[--top];
+            if (marks[node] == generation) {
+                continue;
+            }
+            marks[node] = generation;
+            if (kinds[node] == CHARS) {
+                nodes[count++] = node;
+            } else if (kinds[node] == MATCH) {
+                if (accept == PatternSet.NO_MATCH || outs[node] < accept) {
+                    accept = outs[node];
+                }
+            } else {
+                stack[top++] = alternatives[node];
+                stack[top++] = outs[node];
+            }
+        }
+
+        nodes = Arrays.copyOf(nodes, count);
+        Arrays.sort(nodes);
+        StateKey key = new StateKey(nodes, accept);
+        State state = states.get(key);
+        if (state == null && !full) {
+            state = new State(nodes, accept, boundaries.length);
+            states.put(key, state);
+            full = states.size() >= MAX_STATES;
+        }
+        return state;
+    }
+
+    /**
+     * Tells whether every <code>^</code> can only be reached before any character is read and every <code>$</code>
+     * can only be followed by the end of the value, in which case both match nothing and can be ignored, as values are
+     * always matched whole.
+     */
+    private static boolean anchorsAtBoundaries(Node node, boolean readBefore, boolean readAfter) {
+        if (node instanceof Anchor) {
+            return ((Anchor) node).start ? !readBefore : !readAfter;
+        } else if (node instanceof Sequence) {
+            Node[] items = ((Sequence) node).items;
+            boolean[] readLater = new boolean[items.length];
+            boolean reads = readAfter;
+            for (int i = items.length - 1; i >= 0; i--) {
+                readLater[i] = reads;
+                reads |= items[i].reads();
+            }
+            reads = readBefore;
+            for (int i = 0; i < items.length; i++) {
+                if (!anchorsAtBoundaries(items[i], reads, readLater[i])) {
+                    return false;
+                }
+                reads |= items[i].reads();
+            }
+            return true;
+        } else if (node instanceof Choice) {
+            for (Node alternative : ((Choice) node).alternatives) {
+                if (!anchorsAtBoundaries(alternative, readBefore, readAfter)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (node instanceof Repeat) {
+            Repeat repeat = (Repeat) node;
+            boolean loops = repeat.max != 1 && repeat.body.reads();
+            return anchorsAtBoundaries(repeat.body, readBefore || loops, readAfter || loops);
+        }
+        return true;
+    }
+
+    /**
+     * A deterministic state: the character reading NFA nodes that are active, and the expression matched when the
+     * value ends in this state.
+     */
+    private static final class State {
+        private final int[] nodes;
+        private final int accept;
+        private final AtomicReferenceArray<State> next;
+
+        private State(int[] nodes, int accept, int classCount) {
+            this.nodes = nodes;
+            this.accept = accept;
+            this.next = new AtomicReferenceArray<State>(classCount);
+        }
+    }
+
+    private static final class StateKey {
+        private final int[] nodes;
+        private final int accept;
+        private final int hash;
+
+        private StateKey(int[] nodes, int accept) {
+            this.nodes = nodes;
+            this.accept = accept;
+            this.hash = 31 * Arrays.hashCode(nodes) + accept;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof StateKey)) {
+                return false;
+            }
+            StateKey key = (StateKey) other;
+            return hash == key.hash && accept == key.accept && Arrays.equals(nodes, key.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Accumulates the NFA nodes. A {@link #CHARS} node reads a character of its set and continues with its out node, a
+     * {@link #SPLIT} node continues with both its out and its alternative node and a {@link #MATCH} node holds the
+     * index of its expression in its out slot.
+     */
+    private static final class Builder {
+        private int[] kinds = new int[64];
+        private int[] outs = new int[64];
+        private int[] alternatives = new int[64];
+        private CharSet[] sets = new CharSet[64];
+        private int size;
+        private int start;
+
+        int add(int kind, CharSet set, int out, int alternative) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, size * 2);
+                outs = Arrays.copyOf(outs, size * 2);
+                alternatives = Arrays.copyOf(alternatives, size * 2);
+                sets = Arrays.copyOf(sets, size * 2);
+            }
+            kinds[size] = kind;
+            sets[size] = set;
+            outs[size] = out;
+            alternatives[size] = alternative;
+            return size++;
+        }
+    }
+
+    /**
+     * A parsed expression. Nodes are built back to front: each one is given the node that follows it and returns the
+     * node it starts with.
+     */
+    private abstract static class Node {
+        abstract int build(Builder builder, int next);
+
+        /**
+         * @return true if the expression can read at least one character
+         */
+        abstract boolean reads();
+
+        /**
+         * @return the number of NFA nodes built for the expression, saturated at {@link Integer#MAX_VALUE}
+         */
+        abstract long size();
+    }
+
+    private static final class Chars extends Node {
+        private final CharSet set;
+
+        private Chars(CharSet set) {
+            this.set = set;
+        }
+
+        @Override
+        int build(Builder builder, int next) {
+            return builder.add(CHARS, set, next, -1);
+        }
+
+        @Override
+        boolean reads() {
+            return true;
+        }
+
+        @Override
+        long size() {
+            return 1;
+        }
+    }
+
+    private static final class Anchor extends Node {
+        private final boolean start;
+
+        private Anchor(boolean start) {
+            this.start = start;
+        }
+
+        @Override
+        int build(Builder builder, int next) {
+            return next;
+        }
+
+        @Override
+        boolean reads() {
+            return false;
+        }
+
+        @Override
+        long size() {
+            return 0;
+        }
+    }
+
+    private static final class Sequence extends Node {
+        private final Node[] items;
+
+        private Sequence(List<Node> items) {
+            this.items = items.toArray(new Node[items.size()]);
+        }
+
+        @Override
+        int build(Builder builder, int next) {
+            for (int i = items.length - 1; i >= 0; i--) {
+                next = items[i].build(builder, next);
+            }
+            return next;
+        }
+
+        @Override
+        boolean reads() {
+            for (Node item : items) {
+                if (item.reads()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        long size() {
+            long size = 0;
+            for (Node item : items) {
+                size = Math.min(Integer.MAX_VALUE, size + item.size());
+            }
+            return size;
+        }
+    }
+
+    private static final class Choice extends Node {
+        private final Node[] alternatives;
+
+        private Choice(List<Node> alternatives) {
+            this.alternatives = alternatives.toArray(new Node[alternatives.size()]);
+        }
+
+        @Override
+        int build(Builder builder, int next) {
+            int start = alternatives[alternatives.length - 1].build(builder, next);
+            for (int i = alternatives.length - 2; i >= 0; i--) {
+                start = builder.add(SPLIT, null, alternatives[i].build(builder, next), start);
+            }
+            return start;
+        }
+
+        @Override
+        boolean reads() {
+            for (Node alternative : alternatives) {
+                if (alternative.reads()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        long size() {
+            long size = alternatives.length - 1;
+            for (Node alternative : alternatives) {
+                size = Math.min(Integer.MAX_VALUE, size + alternative.size());
+            }
+            return size;
+        }
+    }
+
+    /**
+     * A quantified expression; a maximum of -1 means unbounded. The mandatory occurrences are built as copies of the
+     * body, followed by either a loop or nested optional copies.
+     */
+    private static final class Repeat extends Node {
+        private final Node body;
+        private final int min;
+        private final int max;
+
+        private Repeat(Node body, int min, int max) {
+            this.body = body;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        int build(Builder builder, int next) {
+            int tail;
+            if (max < 0) {
+                tail = builder.add(SPLIT, null, -1, next);
+                int loop = body.build(builder, tail);
+                builder.outs[tail] = loop;
+            } else {
+                tail = next;
+                for (int i = min; i < max; i++) {
+                    tail = builder.add(SPLIT, null, body.build(builder, tail), next);
+                }
+            }
+            for (int i = 0; i < min; i++) {
+                tail = body.build(builder, tail);
+            }
+            return tail;
+        }
+
+        @Override
+        boolean reads() {
+            return max != 0 && body.reads();
+        }
+
+        @Override
+        long size() {
+            long copies = max < 0 ? min + 1L : max;
+            long splits = max < 0 ? 1L : max - min;
+            return Math.min(Integer.MAX_VALUE, copies * body.size() + splits);
+        }
+    }
+
+    /**
+     * A set of UTF-16 code units, as sorted and disjoint inclusive ranges.
+     */
+    private static final class CharSet {
+        private static final CharSet DIGIT = range('0', '9');
+        private static final CharSet WORD = range('a', 'z').union(range('A', 'Z')).union(DIGIT).union(range('_', '_'));
+        private static final CharSet SPACE = range('\t', '\r').union(range(' ', ' '));
+        private static final CharSet DOT = range('\n', '\n').union(range('\r', '\r')).union(range('\u0085', '\u0085'))
+                .union(range(0x2028, 0x2029)).complement();
+
+        private final int[] ranges;
+
+        private CharSet(int[] ranges) {
+            this.ranges = ranges;
+        }
+
+        static CharSet range(int low, int high) {
+            return new CharSet(new int[] {low, high});
+        }
+
+        CharSet union(CharSet other) {
+            int[] merged = new int[ranges.length + other.ranges.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < ranges.length || j < other.ranges.length) {
+                int low;
+                int high;
+                if (j >= other.ranges.length || (i < ranges.length && ranges[i] <= other.ranges[j])) {
+                    low = ranges[i];
+                    high = ranges[i + 1];
+                    i += 2;
+                } else {
+                    low = other.ranges[j];
+                    high = other.ranges[j + 1];
+                    j += 2;
+                }
+                if (count > 0 && low <= merged[count - 1] + 1) {
+                    merged[count - 1] = Math.max(merged[count - 1], high);
+                } else {
+                    merged[count++] = low;
+                    merged[count++] = high;
+                }
+            }
+            return new CharSet(Arrays.copyOf(merged, count));
+        }
+
+        CharSet complement() {
+            int[] inverted = new int[ranges.length + 2];
+            int count = 0;
+            int next = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    inverted[count++] = next;
+                    inverted[count++] = ranges[i] - 1;
+                }
+                next = ranges[i + 1] + 1;
+            }
+            if (next <= Character.MAX_VALUE) {
+                inverted[count++] = next;
+                inverted[count++] = Character.MAX_VALUE;
+            }
+            return new CharSet(Arrays.copyOf(inverted, count));
+        }
+
+        /**
+         * @return this set with the other case of its ASCII letters, as matched by
+         *         {@link java.util.regex.Pattern#CASE_INSENSITIVE}
+         */
+        CharSet foldCase() {
+            CharSet folded = this;
+            for (int i = 0; i < ranges.length; i += 2) {
+                int upperLow = Math.max(ranges[i], 'A');
+                int upperHigh = Math.min(ranges[i + 1], 'Z');
+                if (upperLow <= upperHigh) {
+                    folded = folded.union(range(upperLow + 32, upperHigh + 32));
+                }
+                int lowerLow = Math.max(ranges[i], 'a');
+                int lowerHigh = Math.min(ranges[i + 1], 'z');
+                if (lowerLow <= lowerHigh) {
+                    folded = folded.union(range(lowerLow - 32, lowerHigh - 32));
+                }
+            }
+            return folded;
+        }
+
+        /**
+         * @return the only character of the set, or -1 if it has several
+         */
+        int single() {
+            return ranges.length == 2 && ranges[0] == ranges[1] ? ranges[0] : -1;
+        }
+    }
+
+    private static final class UnsupportedConstructException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private UnsupportedConstructException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final UnsupportedConstructException UNSUPPORTED = new UnsupportedConstructException();
+
+    /**
+     * Recursive descent parser of the supported subset of the {@link java.util.regex.Pattern} syntax. The expression
+     * is known to be valid, so the parser only has to recognize what it supports.
+     */
+    private static final class Parser {
+        private final String regex;
+        private final boolean caseSensitive;
+        private int position;
+
+        private Parser(String regex, boolean caseSensitive) {
+            this.regex = regex;
+            this.caseSensitive = caseSensitive;
+        }
+
+        Node parse() throws UnsupportedConstructException {
+            Node node = alternation();
+            if (position != regex.length()) {
+                throw UNSUPPORTED;
+            }
+            return node;
+        }
+
+        private Node alternation() throws UnsupportedConstructException {
+            Node first = sequence();
+            if (!at('|')) {
+                return first;
+            }
+            List<Node> alternatives = new ArrayList<Node>();
+            alternatives.add(first);
+            while (at('|')) {
+                position++;
+                alternatives.add(sequence());
+            }
+            return new Choice(alternatives);
+        }
+
+        private Node sequence() throws UnsupportedConstructException {
+            List<Node> items = new ArrayList<Node>();
+            while (position < regex.length() && !at('|') && !at(')')) {
+                items.add(quantified());
+            }
+            return items.size() == 1 ? items.get(0) : new Sequence(items);
+        }
+
+        private Node quantified() throws UnsupportedConstructException {
+            Node atom = atom();
+            if (position == regex.length()) {
+                return atom;
+            }
+
+            int min;
+            int max;
+            char c = regex.charAt(position);
+            if (c == '*') {
+                min = 0;
+                max = -1;
+                position++;
+            } else if (c == '+') {
+                min = 1;
+                max = -1;
+                position++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                position++;
+            } else if (c == '{') {
+                position++;
+                min = number();
+                max = min;
+                if (at(',')) {
+                    position++;
+                    max = at('}') ? -1 : number();
+                }
+                expect('}');
+            } else {
+                return atom;
+            }
+
+            if (atom instanceof Anchor) {
+                throw UNSUPPORTED;
+            }
+            // Laziness does not change which values match as a whole; possessive quantifiers do
+            if (at('?')) {
+                position++;
+            } else if (at('+')) {
+                throw UNSUPPORTED;
+            }
+            if (at('*') || at('+') || at('?') || at('{')) {
+                throw UNSUPPORTED;
+            }
+            return new Repeat(atom, min, max);
+        }
+
+        private Node atom() throws UnsupportedConstructException {
+            char c = regex.charAt(position);
+            switch (c) {
+                case '(':
+                    position++;
+                    if (regex.startsWith("?:", position)) {
+                        position += 2;
+                    } else if (regex.startsWith("?<", position) && position + 2 < regex.length()
+                            && Character.isLetter(regex.charAt(position + 2))) {
+                        position = regex.indexOf('>', position) + 1;
+                    } else if (at('?')) {
+                        throw UNSUPPORTED;
+                    }
+                    Node group = alternation();
+                    expect(')');
+                    return group;
+                case '[':
+                    return new Chars(characterClass());
+                case '.':
+                    position++;
+                    return new Chars(CharSet.DOT);
+                case '^':
+                    position++;
+                    return new Anchor(true);
+                case '$':
+                    position++;
+                    return new Anchor(false);
+                case '\\':
+                    return new Chars(fold(escape()));
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw UNSUPPORTED;
+                default:
+                    position++;
+                    return new Chars(fold(literal(c)));
+            }
+        }
+
+        private CharSet characterClass() throws UnsupportedConstructException {
+            position++;
+            boolean negated = at('^');
+            if (negated) {
+                position++;
+            }
+            if (at(']')) {
+                throw UNSUPPORTED;
+            }
+
+            CharSet set = null;
+            while (true) {
+                if (position == regex.length() || at('[') || regex.startsWith("&&", position)) {
+                    throw UNSUPPORTED;
+                }
+                if (at(']')) {
+                    position++;
+                    break;
+                }
+
+                CharSet item = classMember();
+                int low = item.single();
+                if (at('-') && position + 1 < regex.length() && regex.charAt(position + 1) != ']') {
+                    if (low < 0) {
+                        throw UNSUPPORTED;
+                    }
+                    position++;
+                    int high = classMember().single();
+                    if (high < low) {
+                        throw UNSUPPORTED;
+                    }
+                    item = CharSet.range(low, high);
+                    if (at('-') && position + 1 < regex.length() && regex.charAt(position + 1) != ']') {
+                        throw UNSUPPORTED;
+                    }
+                }
+                item = fold(item);
+                set = set == null ? item : set.union(item);
+            }
+            return negated ? set.complement() : set;
+        }
+
+        private CharSet classMember() throws UnsupportedConstructException {
+            char c = regex.charAt(position);
+            if (c == '\\') {
+                return escape();
+            }
+            if (c == '[') {
+                throw UNSUPPORTED;
+            }
+            position++;
+            return literal(c);
+        }
+
+        private CharSet escape() throws UnsupportedConstructException {
+            position++;
+            if (position == regex.length()) {
+                throw UNSUPPORTED;
+            }
+            char c = regex.charAt(position++);
+            switch (c) {
+                case 'd':
+                    return CharSet.DIGIT;
+                case 'D':
+                    return CharSet.DIGIT.complement();
+                case 'w':
+                    return CharSet.WORD;
+                case 'W':
+                    return CharSet.WORD.complement();
+                case 's':
+                    return CharSet.SPACE;
+                case 'S':
+                    return CharSet.SPACE.complement();
+                case 't':
+                    return literal('\t');
+                case 'n':
+                    return literal('\n');
+                case 'r':
+                    return literal('\r');
+                case 'f':
+                    return literal('\f');
+                case 'a':
+                    return literal('\u0007');
+                case 'e':
+                    return literal('\u001B');
+                case 'x':
+                    return literal((char) hex(2));
+                case 'u':
+                    return literal((char) hex(4));
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        throw UNSUPPORTED;
+                    }
+                    return literal(c);
+            }
+        }
+
+        private CharSet literal(char c) throws UnsupportedConstructException {
+            if (Character.isSurrogate(c)) {
+                throw UNSUPPORTED;
+            }
+            return CharSet.range(c, c);
+        }
+
+        private CharSet fold(CharSet set) {
+            return caseSensitive ? set : set.foldCase();
+        }
+
+        private int hex(int digits) throws UnsupportedConstructException {
+            if (position + digits > regex.length()) {
+                throw UNSUPPORTED;
+            }
+            int value = 0;
+            for (int i = 0; i < digits; i++) {
+                int digit = Character.digit(regex.charAt(position++), 16);
+                if (digit < 0) {
+                    throw UNSUPPORTED;
+                }
+                value = value * 16 + digit;
+            }
+            return value;
+        }
+
+        private int number() throws UnsupportedConstructException {
+            int begin = position;
+            while (position < regex.length() && regex.charAt(position) >= '0' && regex.charAt(position) <= '9') {
+                position++;
+            }
+            if (position == begin || position - begin > 6) {
+                throw UNSUPPORTED;
+            }
+            return Integer.parseInt(regex.substring(begin, position));
+        }
+
+        private void expect(char c) throws UnsupportedConstructException {
+            if (!at(c)) {
+                throw UNSUPPORTED;
+            }
+            position++;
+        }
+
+        private boolean at(char c) {
+            return position < regex.length() && regex.charAt(position) == c;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+/**
+ * A compiled validation rule. Rules are immutable and safe to share between threads.
+ *
+ * @see Rules
+ */
+interface Rule {
+    /**
+     * @param value Value to validate, may be <code>null</code>
+     * @return true if the value satisfies the rule
+     */
+    boolean isValid(Object value);
+}
@@ -0,0 +1,147 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.expression.ExpressionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, compiled list of rules applied to values extracted from a message with expressions.
+ * <p/>
+ * Each entry of the plan has the form <code>expression =&gt; rule</code>, for example
+ * <code>payload.email =&gt; email</code> or <code>payload.name =&gt; length(1,64)</code>. Expressions are written
+ * without the <code>#[ ]</code> delimiters, otherwise they would be resolved when the entries are read instead of by
+ * the plan. See {@link Rules} for the supported rule definitions.
+ */
+final class RulePlan {
+    static final String SEPARATOR = "=>";
+
+    private final String[] expressions;
+    private final Rule[] rules;
+    private final String[] definitions;
+
+    private RulePlan(String[] expressions, Rule[] rules, String[] definitions) {
+        this.expressions = expressions;
+        this.rules = rules;
+        this.definitions = definitions;
+    }
+
+    /**
+     * Compiles a list of plan entries.
+     *
+     * @param entries        Entries of the form <code>expression =&gt; rule</code>
+     * @param prepared       Rules compiled at startup, reused instead of compiling their definitions again
+     * @param domains        Known top-level domains, or <code>null</code> to use the list of the commons validators
+     * @param regexStepLimit Maximum number of characters read by a <code>regex</code> match, or zero for no limit
+     * @return the compiled plan
+     * @throws IllegalArgumentException if one of the entries is not valid
+     */
+    static RulePlan compile(List<String> entries, Map<String, Rule> prepared, TopLevelDomains domains, int regexStepLimit) {
+        int size = entries.size();
+        String[] expressions = new String[size];
+        Rule[] rules = new Rule[size];
+        String[] definitions = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            String entry = entries.get(i);
+            int separator = entry == null ? -1 : entry.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Rule '" + entry + "' must have the form 'expression " + SEPARATOR + " rule'");
+            }
+            expressions[i] = expression(entry.substring(0, separator).trim());
+            definitions[i] = entry.trim();
+            rules[i] = Rules.compile(entry.substring(separator + SEPARATOR.length()), prepared, domains, regexStepLimit);
+        }
+
+        return new RulePlan(expressions, rules, definitions);
+    }
+
+    private static String expression(String expression) {
+        if (expression.startsWith("#[") && expression.endsWith("]")) {
+            return expression;
+        }
+        return "#[" + expression + "]";
+    }
+
+    int size() {
+        return rules.length;
+    }
+
+    /**
+     * Evaluates the expressions of the plan against the message and applies the rules.
+     *
+     * @param muleMessage The current message
+     * @param failFast    Whether to stop at the first failure
+     * @return the result; the index of each failure is the position of the failing entry in the plan
+     */
+    ValidationResult evaluate(MuleMessage muleMessage, boolean failFast) {
+        ExpressionManager expressionManager = muleMessage.getMuleContext().getExpressionManager();
+
+        List<ValidationFailure> failures = null;
+        for (int i = 0; i < rules.length; i++) {
+            Object value = expressionManager.evaluate(expressions[i], muleMessage);
+            if (!rules[i].isValid(value)) {
+                if (failures == null) {
+                    failures = new ArrayList<ValidationFailure>(failFast ? 1 : rules.length - i);
+                }
+                failures.add(new ValidationFailure(i, definitions[i]));
+                if (failFast) {
+                    break;
+                }
+            }
+        }
+        return ValidationResult.of(failures);
+    }
+
+    /**
+     * Evaluates the expressions of the plan against the message without applying the rules, so that the rules can be
+     * applied later on another thread, once the message has moved on.
+     *
+     * @param muleMessage The current message
+     * @return the value of each expression, by position in the plan
+     */
+    Object[] extract(MuleMessage muleMessage) {
+        ExpressionManager expressionManager = muleMessage.getMuleContext().getExpressionManager();
+
+        Object[] values = new Object[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            values[i] = expressionManager.evaluate(expressions[i], muleMessage);
+        }
+        return values;
+    }
+
+    /**
+     * Applies the rules of the plan to values extracted by {@link #extract}.
+     *
+     * @param values   The value of each expression
+     * @param failFast Whether to stop at the first failure
+     * @return the result; the index of each failure is the position of the failing entry in the plan
+     */
+    ValidationResult apply(Object[] values, boolean failFast) {
+        List<ValidationFailure> failures = null;
+        for (int i = 0; i < rules.length; i++) {
+            if (!rules[i].isValid(values[i])) {
+                if (failures == null) {
+                    failures = new ArrayList<ValidationFailure>(failFast ? 1 : rules.length - i);
+                }
+                failures.add(new ValidationFailure(i, definitions[i]));
+                if (failFast) {
+                    break;
+                }
+            }
+        }
+        return ValidationResult.of(failures);
+    }
+}
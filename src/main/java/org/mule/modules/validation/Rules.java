@@ -0,0 +1,450 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.apache.commons.validator.routines.CreditCardValidator;
+import org.apache.commons.validator.routines.DomainValidator;
+import org.apache.commons.validator.routines.EmailValidator;
+import org.apache.commons.validator.routines.PercentValidator;
+import org.apache.commons.validator.routines.UrlValidator;
+import org.mule.transport.NullPayload;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Compiles textual rule definitions into {@link Rule} instances.
+ * <p/>
+ * A definition is the name of a validation, optionally followed by its arguments between parentheses:
+ * <ul>
+ * <li><code>domain</code>, <code>top-level-domain</code>, <code>top-level-domain-country</code>, <code>ip-address</code>,
+ * <code>url</code>, <code>percentage</code>, <code>isbn10</code>, <code>isbn13</code>, <code>iban</code> and
+ * <code>not-empty</code> take no arguments</li>
+ * <li><code>length(min,max)</code>, <code>long(min,max)</code>, <code>integer(min,max)</code> and
+ * <code>double(min,max)</code> take optional bounds, for example <code>long(0,)</code></li>
+ * <li><code>email(strictness)</code> takes an optional {@link EmailStrictness}, for example <code>email(SYNTAX)</code>;
+ * without it the commons validator is used</li>
+ * <li><code>credit-card(VISA,MASTERCARD)</code> takes the accepted card types</li>
+ * <li><code>check-digit(scheme)</code> takes a {@link CheckDigitScheme}, for example <code>check-digit(EAN13)</code></li>
+ * <li><code>regex(expression)</code> takes a single regular expression, which may itself contain commas and
+ * parentheses; a match reads at most the step limit given to {@link #compile(String, TopLevelDomains, int)}, as with
+ * {@link PatternSet#match}</li>
+ * </ul>
+ * Numbers are parsed with the {@link Locale#US} format. Values that are not strings are validated using their
+ * <code>toString()</code> representation, except for <code>not-empty</code>.
+ * <p/>
+ * When rules are compiled with the {@link TopLevelDomains} of a top-level domains file, <code>domain</code>,
+ * <code>top-level-domain</code>, <code>top-level-domain-country</code> and every <code>email</code> rule look top-level
+ * domains up in that list instead of the list built into the commons validators. <code>email</code> without a
+ * strictness is then checked at the {@link EmailStrictness#TOP_LEVEL_DOMAIN} level.
+ */
+final class Rules {
+    private Rules() {
+    }
+
+    /**
+     * Compiles a rule definition that checks top-level domains against the list of the commons validators and does
+     * not limit regular expression matches.
+     *
+     * @param definition Rule definition
+     * @return the compiled rule
+     * @throws IllegalArgumentException if the definition is not valid
+     */
+    static Rule compile(String definition) {
+        return compile(definition, null, 0);
+    }
+
+    /**
+     * Compiles a rule definition.
+     *
+     * @param definition     Rule definition
+     * @param domains        Known top-level domains, or <code>null</code> to use the list of the commons validators
+     * @param regexStepLimit Maximum number of characters read by a <code>regex</code> match, or zero for no limit
+     * @return the compiled rule
+     * @throws IllegalArgumentException if the definition is not valid
+     */
+    static Rule compile(String definition, TopLevelDomains domains, int regexStepLimit) {
+        if (definition == null) {
+            throw new IllegalArgumentException("A rule definition cannot be null");
+        }
+
+        String trimmed = definition.trim();
+        String name = trimmed;
+        String arguments = null;
+        int open = trimmed.indexOf('(');
+        if (open >= 0) {
+            if (!trimmed.endsWith(")")) {
+                throw new IllegalArgumentException("Rule definition '" + definition + "' is missing a closing parenthesis");
+            }
+            name = trimmed.substring(0, open).trim();
+            arguments = trimmed.substring(open + 1, trimmed.length() - 1);
+        }
+
+        if ("email".equals(name)) {
+            if (arguments != null && arguments.trim().length() > 0) {
+                return new EmailRule(EmailStrictness.valueOf(arguments.trim()), domains);
+            }
+            return domains == null ? EMAIL : new EmailRule(EmailStrictness.TOP_LEVEL_DOMAIN, domains);
+        } else if ("domain".equals(name)) {
+            noArguments(definition, arguments);
+            return domains == null ? DOMAIN : new TopLevelDomainsRule(domains, TopLevelDomainsRule.DOMAIN);
+        } else if ("top-level-domain".equals(name)) {
+            noArguments(definition, arguments);
+            return domains == null ? TOP_LEVEL_DOMAIN : new TopLevelDomainsRule(domains, TopLevelDomainsRule.TOP_LEVEL_DOMAIN);
+        } else if ("top-level-domain-country".equals(name)) {
+            noArguments(definition, arguments);
+            return domains == null ? TOP_LEVEL_DOMAIN_COUNTRY : new TopLevelDomainsRule(domains, TopLevelDomainsRule.COUNTRY_CODE);
+        } else if ("ip-address".equals(name)) {
+            noArguments(definition, arguments);
+            return IP_ADDRESS;
+        } else if ("url".equals(name)) {
+            noArguments(definition, arguments);
+            return URL;
+        } else if ("percentage".equals(name)) {
+            noArguments(definition, arguments);
+            return PERCENTAGE;
+        } else if ("isbn10".equals(name)) {
+            noArguments(definition, arguments);
+            return ISBN10;
+        } else if ("isbn13".equals(name)) {
+            noArguments(definition, arguments);
+            return ISBN13;
+        } else if ("iban".equals(name)) {
+            noArguments(definition, arguments);
+            return IBAN;
+        } else if ("check-digit".equals(name)) {
+            if (arguments == null || arguments.trim().length() == 0) {
+                throw new IllegalArgumentException("Rule definition '" + definition + "' requires a check digit scheme");
+            }
+            return new CheckDigitRule(CheckDigitScheme.valueOf(arguments.trim()));
+        } else if ("not-empty".equals(name)) {
+            noArguments(definition, arguments);
+            return NOT_EMPTY;
+        } else if ("length".equals(name)) {
+            String[] bounds = bounds(definition, arguments);
+            return new LengthRule(bounds[0] == null ? 0 : Integer.parseInt(bounds[0]),
+                    bounds[1] == null ? Integer.MAX_VALUE : Integer.parseInt(bounds[1]));
+        } else if ("long".equals(name)) {
+            String[] bounds = bounds(definition, arguments);
+            return new LongRule(bounds[0] == null ? Long.MIN_VALUE : Long.parseLong(bounds[0]),
+                    bounds[1] == null ? Long.MAX_VALUE : Long.parseLong(bounds[1]));
+        } else if ("integer".equals(name)) {
+            String[] bounds = bounds(definition, arguments);
+            return new IntegerRule(bounds[0] == null ? Integer.MIN_VALUE : Integer.parseInt(bounds[0]),
+                    bounds[1] == null ? Integer.MAX_VALUE : Integer.parseInt(bounds[1]));
+        } else if ("double".equals(name)) {
+            String[] bounds = bounds(definition, arguments);
+            return new DoubleRule(bounds[0] == null ? Double.NEGATIVE_INFINITY : Double.parseDouble(bounds[0]),
+                    bounds[1] == null ? Double.POSITIVE_INFINITY : Double.parseDouble(bounds[1]));
+        } else if ("credit-card".equals(name)) {
+            if (arguments == null || arguments.trim().length() == 0) {
+                throw new IllegalArgumentException("Rule definition '" + definition + "' requires at least one credit card type");
+            }
+            int mask = 0;
+            for (String type : arguments.split(",")) {
+                mask |= CreditCardType.valueOf(type.trim()).mask();
+            }
+            return new CreditCardRule(CreditCardValidators.get(mask));
+        } else if ("regex".equals(name)) {
+            if (arguments == null || arguments.length() == 0) {
+                throw new IllegalArgumentException("Rule definition '" + definition + "' requires a regular expression");
+            }
+            return new RegexRule(PatternSet.compile(Collections.singletonList(arguments), true, false), regexStepLimit);
+        }
+
+        throw new IllegalArgumentException("Unknown rule '" + name + "' in definition '" + definition + "'");
+    }
+
+    /**
+     * Returns the rule compiled at startup for a definition, or compiles it.
+     *
+     * @param definition Rule definition
+     * @param prepared       Rules compiled at startup, keyed by their trimmed definition
+     * @param domains        Known top-level domains, or <code>null</code> to use the list of the commons validators
+     * @param regexStepLimit Maximum number of characters read by a <code>regex</code> match, or zero for no limit
+     * @return the compiled rule
+     * @throws IllegalArgumentException if the definition is not valid
+     */
+    static Rule compile(String definition, Map<String, Rule> prepared, TopLevelDomains domains, int regexStepLimit) {
+        Rule rule = definition == null ? null : prepared.get(definition.trim());
+        return rule != null ? rule : compile(definition, domains, regexStepLimit);
+    }
+
+    private static void noArguments(String definition, String arguments) {
+        if (arguments != null && arguments.trim().length() > 0) {
+            throw new IllegalArgumentException("Rule definition '" + definition + "' does not take arguments");
+        }
+    }
+
+    private static String[] bounds(String definition, String arguments) {
+        String[] bounds = new String[2];
+        if (arguments == null) {
+            return bounds;
+        }
+
+        String[] parts = arguments.split(",", -1);
+        if (parts.length > 2) {
+            throw new IllegalArgumentException("Rule definition '" + definition + "' takes at most a minimum and a maximum");
+        }
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i].trim();
+            bounds[i] = part.length() == 0 ? null : part;
+        }
+        return bounds;
+    }
+
+    /**
+     * Base class of the rules that validate the string representation of a value. <code>null</code> is never valid.
+     */
+    private abstract static class StringRule implements Rule {
+        @Override
+        public final boolean isValid(Object value) {
+            String string = asString(value);
+            return string != null && isValid(string);
+        }
+
+        abstract boolean isValid(String value);
+    }
+
+    private static String asString(Object value) {
+        if (value == null || value instanceof NullPayload) {
+            return null;
+        }
+        return value.toString();
+    }
+
+    private static final Rule EMAIL = new StringRule() {
+        @Override
+        boolean isValid(String value) {
+            return EmailValidator.getInstance().isValid(value);
+        }
+    };
+
+    private static final Rule DOMAIN = new StringRule() {
+        @Override
+        boolean isValid(String value) {
+            return DomainValidator.getInstance().isValid(value);
+        }
+    };
+
+    private static final Rule TOP_LEVEL_DOMAIN = new StringRule() {
+        @Override
+        boolean isValid(String value) {
+            return DomainValidator.getInstance().isValidTld(value);
+        }
+    };
+
+    private static final Rule TOP_LEVEL_DOMAIN_COUNTRY = new StringRule() {
+        @Override
+        boolean isValid(String value) {
+            return DomainValidator.getInstance().isValidCountryCodeTld(value);
+        }
+    };
+
+    private static final Rule IP_ADDRESS = new StringRule() {
+        @Override
+        boolean isValid(String value) {
+            return IpAddresses.isValid(value, IpVersion.ANY, true);
+        }
+    };
+
+    private static final Rule URL = new StringRule() {
+        private final UrlValidator validator = UrlValidators.get(false, false, false, false);
+
+        @Override
+        boolean isValid(String value) {
+            return validator.isValid(value);
+        }
+    };
+
+    private static final Rule PERCENTAGE = new StringRule() {
+        @Override
+        boolean isValid(String value) {
+            return PercentValidator.getInstance().isValid(value);
+        }
+    };
+
+    private static final Rule ISBN10 = new StringRule() {
+        @Override
+        boolean isValid(String value) {
+            return CheckDigits.isIsbn10(value);
+        }
+    };
+
+    private static final Rule ISBN13 = new StringRule() {
+        @Override
+        boolean isValid(String value) {
+            return CheckDigits.isIsbn13(value);
+        }
+    };
+
+    private static final Rule IBAN = new StringRule() {
+        @Override
+        boolean isValid(String value) {
+            return CheckDigits.isValid(value, CheckDigitScheme.IBAN, " ");
+        }
+    };
+
+    private static final Rule NOT_EMPTY = new Rule() {
+        @Override
+        public boolean isValid(Object value) {
+            return !Emptiness.isEmpty(value);
+        }
+    };
+
+    private static final class LengthRule extends StringRule {
+        private final int minValue;
+        private final int maxValue;
+
+        private LengthRule(int minValue, int maxValue) {
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            return value.length() >= minValue && value.length() <= maxValue;
+        }
+    }
+
+    private static final class LongRule extends StringRule {
+        private final long minValue;
+        private final long maxValue;
+
+        private LongRule(long minValue, long maxValue) {
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            Long number = ValueParsers.parseLong(value, null, Locale.US);
+            return number != null && number >= minValue && number <= maxValue;
+        }
+    }
+
+    private static final class IntegerRule extends StringRule {
+        private final int minValue;
+        private final int maxValue;
+
+        private IntegerRule(int minValue, int maxValue) {
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            Integer number = ValueParsers.parseInteger(value, null, Locale.US);
+            return number != null && number >= minValue && number <= maxValue;
+        }
+    }
+
+    private static final class DoubleRule extends StringRule {
+        private final double minValue;
+        private final double maxValue;
+
+        private DoubleRule(double minValue, double maxValue) {
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            Double number = ValueParsers.parseDouble(value, null, Locale.US);
+            return number != null && number >= minValue && number <= maxValue;
+        }
+    }
+
+    private static final class CreditCardRule extends StringRule {
+        private final CreditCardValidator validator;
+
+        private CreditCardRule(CreditCardValidator validator) {
+            this.validator = validator;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            return validator.validate(value) != null;
+        }
+    }
+
+    private static final class CheckDigitRule extends StringRule {
+        private final CheckDigitScheme scheme;
+
+        private CheckDigitRule(CheckDigitScheme scheme) {
+            this.scheme = scheme;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            return CheckDigits.isValid(value, scheme, null);
+        }
+    }
+
+    private static final class EmailRule extends StringRule {
+        private final EmailStrictness strictness;
+        private final TopLevelDomains domains;
+
+        private EmailRule(EmailStrictness strictness, TopLevelDomains domains) {
+            this.strictness = strictness;
+            this.domains = domains;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            return EmailAddresses.isValid(value, strictness, domains);
+        }
+    }
+
+    /**
+     * Checks domain names, top-level domains or country codes against the list of a top-level domains file.
+     */
+    private static final class TopLevelDomainsRule extends StringRule {
+        private static final int DOMAIN = 0;
+        private static final int TOP_LEVEL_DOMAIN = 1;
+        private static final int COUNTRY_CODE = 2;
+
+        private final TopLevelDomains domains;
+        private final int check;
+
+        private TopLevelDomainsRule(TopLevelDomains domains, int check) {
+            this.domains = domains;
+            this.check = check;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            switch (check) {
+                case DOMAIN:
+                    return domains.isValidDomain(value);
+                case TOP_LEVEL_DOMAIN:
+                    return domains.isValidTld(value);
+                default:
+                    return domains.isValidCountryCodeTld(value);
+            }
+        }
+    }
+
+    private static final class RegexRule extends StringRule {
+        private final PatternSet patterns;
+        private final int stepLimit;
+
+        private RegexRule(PatternSet patterns, int stepLimit) {
+            this.patterns = patterns;
+            this.stepLimit = stepLimit;
+        }
+
+        @Override
+        boolean isValid(String value) {
+            return patterns.match(value, stepLimit) != PatternSet.NO_MATCH;
+        }
+    }
+}
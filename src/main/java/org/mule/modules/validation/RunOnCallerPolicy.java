@@ -0,0 +1,28 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Runs a task rejected by an executor of the module on the thread that submitted it.
+ * <p/>
+ * Unlike {@link ThreadPoolExecutor.CallerRunsPolicy} the task also runs once the executor is shut down, instead of
+ * being discarded without completing its future, so a caller submitting work while the module stops still gets an
+ * outcome.
+ */
+final class RunOnCallerPolicy implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        task.run();
+    }
+}
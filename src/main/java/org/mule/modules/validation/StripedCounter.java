@@ -0,0 +1,68 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that is cheap to update from many threads at once.
+ * <p/>
+ * The count is spread over several cells, each on its own cache line, and every thread updates the cell selected by
+ * its id, so threads running on different cores rarely write to the same line. Reading the count sums the cells and
+ * is therefore not an atomic snapshot while updates are in progress.
+ */
+final class StripedCounter {
+    /**
+     * Number of longs in a 64 byte cache line; only the first long of each line is used.
+     */
+    private static final int PADDING = 8;
+
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray((STRIPES + 1) * PADDING);
+
+    private static int stripes() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    void add(long delta) {
+        cells.getAndAdd(cell(), delta);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get((i + 1) * PADDING);
+        }
+        return sum;
+    }
+
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set((i + 1) * PADDING, 0);
+        }
+    }
+
+    /**
+     * The first line is left unused so that no cell shares a line with the header of the array.
+     */
+    private static int cell() {
+        return (((int) Thread.currentThread().getId() & (STRIPES - 1)) + 1) * PADDING;
+    }
+}
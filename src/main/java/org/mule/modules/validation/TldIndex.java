@@ -0,0 +1,166 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An immutable, case-insensitive set of top-level domains.
+ * <p/>
+ * The domains are stored lower case, one after the other, in a single character array and indexed by an open
+ * addressing hash table that is at most half full. A lookup hashes the characters of the candidate as it reads them,
+ * folding ASCII upper case letters, and compares them in place, so it allocates nothing and does not copy or lower case
+ * the candidate.
+ */
+final class TldIndex {
+    private final char[] chars;
+    private final int[] starts;
+    private final int[] lengths;
+    private final boolean[] countryCodes;
+    private final int mask;
+    private final int size;
+
+    private TldIndex(Set<String> domains) {
+        int charCount = 0;
+        for (String domain : domains) {
+            charCount += domain.length();
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(2, domains.size() * 2 - 1)) << 1;
+        chars = new char[charCount];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        countryCodes = new boolean[capacity];
+        mask = capacity - 1;
+        size = domains.size();
+
+        int offset = 0;
+        for (String domain : domains) {
+            int slot = hash(domain, 0, domain.length()) & mask;
+            while (lengths[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            domain.getChars(0, domain.length(), chars, offset);
+            starts[slot] = offset;
+            lengths[slot] = domain.length();
+            countryCodes[slot] = isCountryCode(domain);
+            offset += domain.length();
+        }
+    }
+
+    /**
+     * Reads a list of top-level domains. Both the IANA <code>tlds-alpha-by-domain.txt</code> file and the public suffix
+     * list are supported: lines starting with <code>#</code> or <code>//</code> are comments, only the first word of a
+     * line is read, and entries that are not a single ASCII label, such as <code>co.uk</code> or <code>*.ck</code>, are
+     * skipped. Two letter domains are country codes.
+     *
+     * @param reader Source of the list
+     * @return the index of the domains read
+     * @throws IOException if the list cannot be read
+     */
+    static TldIndex read(Reader reader) throws IOException {
+        Set<String> domains = new LinkedHashSet<String>();
+        BufferedReader lines = new BufferedReader(reader);
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            String entry = line.trim();
+            if (entry.length() == 0 || entry.startsWith("#") || entry.startsWith("//")) {
+                continue;
+            }
+            for (int i = 0; i < entry.length(); i++) {
+                if (Character.isWhitespace(entry.charAt(i))) {
+                    entry = entry.substring(0, i);
+                    break;
+                }
+            }
+            if (isLabel(entry)) {
+                domains.add(entry.toLowerCase(java.util.Locale.ENGLISH));
+            }
+        }
+        return new TldIndex(domains);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the characters of <code>value</code> between <code>start</code> and <code>end</code> are one of
+     *         the domains, ignoring case
+     */
+    boolean contains(CharSequence value, int start, int end) {
+        return slot(value, start, end) >= 0;
+    }
+
+    /**
+     * @return true if the characters of <code>value</code> between <code>start</code> and <code>end</code> are one of
+     *         the country code domains, ignoring case
+     */
+    boolean containsCountryCode(CharSequence value, int start, int end) {
+        int slot = slot(value, start, end);
+        return slot >= 0 && countryCodes[slot];
+    }
+
+    private int slot(CharSequence value, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return -1;
+        }
+
+        for (int slot = hash(value, start, end) & mask; lengths[slot] != 0; slot = (slot + 1) & mask) {
+            if (lengths[slot] == length && matches(value, start, starts[slot], length)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(CharSequence value, int start, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (lowerCase(value.charAt(start + i)) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence value, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + lowerCase(value.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static char lowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isLabel(String entry) {
+        if (entry.length() == 0 || entry.charAt(0) == '-' || entry.charAt(entry.length() - 1) == '-') {
+            return false;
+        }
+        for (int i = 0; i < entry.length(); i++) {
+            char c = lowerCase(entry.charAt(i));
+            if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCountryCode(String domain) {
+        return domain.length() == 2 && Character.isLetter(domain.charAt(0)) && Character.isLetter(domain.charAt(1));
+    }
+}
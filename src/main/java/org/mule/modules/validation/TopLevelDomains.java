@@ -0,0 +1,154 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates domain names and top-level domains against a list of top-level domains read from a file, with the same
+ * rules as the commons <code>DomainValidator</code>.
+ * <p/>
+ * The file is read when this object is created and read again when it is modified, as described by
+ * {@link RefreshableFile}. A new version that does not list any domain is ignored. Each swap increments the
+ * {@link #version() version} of the list, so that verdicts remembered for a previous list can be told apart.
+ */
+final class TopLevelDomains {
+    private static final RefreshableFile.Loader<TldIndex> LOADER = new RefreshableFile.Loader<TldIndex>() {
+        @Override
+        TldIndex load(File file) throws IOException {
+            Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            TldIndex loaded;
+            try {
+                loaded = TldIndex.read(reader);
+            } finally {
+                reader.close();
+            }
+            if (loaded.size() == 0) {
+                throw new IOException("No top-level domain found in " + file);
+            }
+            return loaded;
+        }
+    };
+
+    private final RefreshableFile<TldIndex> list;
+
+    /**
+     * @param file            File listing the top-level domains
+     * @param refreshInterval Minimum time between two checks of the file, or zero to read it only once
+     * @param unit            Unit of <code>refreshInterval</code>
+     * @throws IOException if the file cannot be read or does not list any domain
+     */
+    TopLevelDomains(File file, long refreshInterval, TimeUnit unit) throws IOException {
+        list = new RefreshableFile<TldIndex>(file, refreshInterval, unit, LOADER);
+    }
+
+    /**
+     * @return true if <code>domain</code> is made of labels of letters, digits and inner hyphens separated by dots and
+     *         its last label is a known top-level domain
+     */
+    boolean isValidDomain(String domain) {
+        if (domain == null) {
+            return false;
+        }
+        int top = topLabelStart(domain, 0, domain.length());
+        return top > 0 && current().contains(domain, top, domain.length());
+    }
+
+    /**
+     * @return true if the characters of <code>value</code> between <code>start</code> and <code>end</code> are a known
+     *         top-level domain
+     */
+    boolean isValidTld(CharSequence value, int start, int end) {
+        return current().contains(value, start, end);
+    }
+
+    /**
+     * @return true if <code>topLevelDomain</code>, without its leading dot if any, is a known top-level domain
+     */
+    boolean isValidTld(String topLevelDomain) {
+        if (topLevelDomain == null) {
+            return false;
+        }
+        return current().contains(topLevelDomain, leadingDot(topLevelDomain), topLevelDomain.length());
+    }
+
+    /**
+     * @return true if <code>countryCode</code>, without its leading dot if any, is a known country code top-level
+     *         domain
+     */
+    boolean isValidCountryCodeTld(String countryCode) {
+        if (countryCode == null) {
+            return false;
+        }
+        return current().containsCountryCode(countryCode, leadingDot(countryCode), countryCode.length());
+    }
+
+    int size() {
+        return current().size();
+    }
+
+    /**
+     * Checks the file for changes like a lookup does, so that a caller consulting the version before remembered
+     * verdicts still notices a new list.
+     *
+     * @return the number of times a changed file replaced the list read at creation
+     */
+    long version() {
+        return list.version();
+    }
+
+    private TldIndex current() {
+        return list.current();
+    }
+
+    private static int leadingDot(String value) {
+        return value.length() > 0 && value.charAt(0) == '.' ? 1 : 0;
+    }
+
+    /**
+     * Checks the syntax of a domain name: one or more labels followed by a top label of at least two letters, where a
+     * label starts and ends with a letter or a digit and may contain hyphens in between.
+     *
+     * @param domain Characters holding the domain name
+     * @param start  Index of the first character of the domain name
+     * @param end    Index after the last character of the domain name
+     * @return the index of the first character of the top label, or -1 if the syntax is not valid
+     */
+    static int topLabelStart(CharSequence domain, int start, int end) {
+        int labelStart = start;
+        boolean letters = true;
+        for (int i = start; i <= end; i++) {
+            char c = i < end ? domain.charAt(i) : '.';
+            if (c == '.') {
+                if (i == labelStart || domain.charAt(i - 1) == '-') {
+                    return -1;
+                }
+                if (i == end) {
+                    return labelStart > start && letters && i - labelStart >= 2 ? labelStart : -1;
+                }
+                labelStart = i + 1;
+                letters = true;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                continue;
+            } else if ((c >= '0' && c <= '9') || (c == '-' && i > labelStart)) {
+                letters = false;
+            } else {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.apache.commons.validator.routines.UrlValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shared {@link UrlValidator} instances.
+ * <p/>
+ * Validators for the default schemes are built lazily once for each of the sixteen combinations of options. Validators
+ * restricted to a custom list of schemes are kept in a bounded cache keyed by the schemes and the options.
+ */
+final class UrlValidators {
+    private static final int ALLOW_TWO_SLASHES = 1;
+    private static final int ALLOW_ALL_SCHEMES = 1 << 1;
+    private static final int ALLOW_LOCAL_URLS = 1 << 2;
+    private static final int NO_FRAGMENTS = 1 << 3;
+
+    private static final AtomicReferenceArray<UrlValidator> VALIDATORS = new AtomicReferenceArray<UrlValidator>(16);
+    private final BoundedCache<SchemesKey, UrlValidator> customValidators;
+
+    /**
+     * @param maxCustomValidators Maximum number of validators with custom schemes to keep
+     */
+    UrlValidators(int maxCustomValidators) {
+        customValidators = new BoundedCache<SchemesKey, UrlValidator>(maxCustomValidators);
+    }
+
+    /**
+     * @return the validator for the specified options, accepting the default schemes unless <code>schemes</code> is
+     *         set
+     * @throws Exception if the validator cannot be built
+     */
+    UrlValidator get(boolean allowTwoSlashes, boolean allowAllSchemes, boolean allowLocalURLs, boolean noFragments, List<String> schemes) throws Exception {
+        if (schemes != null && !schemes.isEmpty()) {
+            int index = index(allowTwoSlashes, allowAllSchemes, allowLocalURLs, noFragments);
+            return customValidators.get(new SchemesKey(schemes, index), CUSTOM_FACTORY);
+        }
+        return get(allowTwoSlashes, allowAllSchemes, allowLocalURLs, noFragments);
+    }
+
+    /**
+     * @return the shared validator for the specified options accepting the default schemes
+     */
+    static UrlValidator get(boolean allowTwoSlashes, boolean allowAllSchemes, boolean allowLocalURLs, boolean noFragments) {
+        int index = index(allowTwoSlashes, allowAllSchemes, allowLocalURLs, noFragments);
+
+        UrlValidator validator = VALIDATORS.get(index);
+        if (validator == null) {
+            validator = new UrlValidator(options(index));
+            if (!VALIDATORS.compareAndSet(index, null, validator)) {
+                validator = VALIDATORS.get(index);
+            }
+        }
+        return validator;
+    }
+
+    /**
+     * Identifies a combination of options and schemes, for caches of the verdicts of the validators.
+     *
+     * @return a 64 bit fingerprint of the options and schemes
+     */
+    static long fingerprint(boolean allowTwoSlashes, boolean allowAllSchemes, boolean allowLocalURLs, boolean noFragments, List<String> schemes) {
+        long fingerprint = index(allowTwoSlashes, allowAllSchemes, allowLocalURLs, noFragments);
+        if (schemes != null && !schemes.isEmpty()) {
+            for (String scheme : schemes) {
+                fingerprint = VerdictCache.hash(String.valueOf(scheme), fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    CacheStatistics getStatistics() {
+        return customValidators.getStatistics();
+    }
+
+    private static int index(boolean allowTwoSlashes, boolean allowAllSchemes, boolean allowLocalURLs, boolean noFragments) {
+        return (allowTwoSlashes ? ALLOW_TWO_SLASHES : 0) |
+                (allowAllSchemes ? ALLOW_ALL_SCHEMES : 0) |
+                (allowLocalURLs ? ALLOW_LOCAL_URLS : 0) |
+                (noFragments ? NO_FRAGMENTS : 0);
+    }
+
+    private static long options(int index) {
+        long options = 0;
+
+        if ((index & ALLOW_ALL_SCHEMES) != 0) {
+            options |= UrlValidator.ALLOW_ALL_SCHEMES;
+        }
+        if ((index & ALLOW_TWO_SLASHES) != 0) {
+            options |= UrlValidator.ALLOW_2_SLASHES;
+        }
+        if ((index & ALLOW_LOCAL_URLS) != 0) {
+            options |= UrlValidator.ALLOW_LOCAL_URLS;
+        }
+        if ((index & NO_FRAGMENTS) != 0) {
+            options |= UrlValidator.NO_FRAGMENTS;
+        }
+
+        return options;
+    }
+
+    private static final BoundedCache.ValueFactory<SchemesKey, UrlValidator> CUSTOM_FACTORY = new BoundedCache.ValueFactory<SchemesKey, UrlValidator>() {
+        @Override
+        UrlValidator create(SchemesKey key) {
+            return new UrlValidator(key.schemes.toArray(new String[key.schemes.size()]), options(key.index));
+        }
+
+        @Override
+        SchemesKey retain(SchemesKey key) {
+            return new SchemesKey(new ArrayList<String>(key.schemes), key.index);
+        }
+    };
+
+    private static final class SchemesKey {
+        private final List<String> schemes;
+        private final int index;
+        private final int hash;
+
+        private SchemesKey(List<String> schemes, int index) {
+            this.schemes = schemes;
+            this.index = index;
+            this.hash = 31 * schemes.hashCode() + index;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof SchemesKey)) {
+                return false;
+            }
+            SchemesKey key = (SchemesKey) other;
+            return hash == key.hash && index == key.index && schemes.equals(key.schemes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
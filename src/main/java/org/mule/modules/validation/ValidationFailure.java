@@ -0,0 +1,48 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.io.Serializable;
+
+/**
+ * A single failed check reported in a {@link ValidationResult}.
+ */
+public final class ValidationFailure implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long index;
+    private final String rule;
+
+    public ValidationFailure(long index, String rule) {
+        this.index = index;
+        this.rule = rule;
+    }
+
+    /**
+     * @return position of the failure; its meaning depends on the processor that reported it, such as the index of
+     *         the rule or of the element that failed
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return definition of the rule that failed
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    @Override
+    public String toString() {
+        return index + ": " + rule;
+    }
+}
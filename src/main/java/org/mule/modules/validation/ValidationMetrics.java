@@ -0,0 +1,113 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The metrics of every processor of a validation config, per processor and per flow.
+ * <p/>
+ * Recording a validation looks up existing metrics without allocating; metrics are only created the first time a
+ * processor is used, or used within a given flow.
+ */
+final class ValidationMetrics implements ValidationMetricsMXBean {
+    private final ConcurrentMap<String, Processor> processors = new ConcurrentHashMap<String, Processor>();
+    private final Map<String, VerdictCache> verdictCaches;
+    private final UrlValidators urlValidators;
+
+    /**
+     * @param verdictCaches Verdict caches of the config, by processor name
+     * @param urlValidators URL validators of the config
+     */
+    ValidationMetrics(Map<String, VerdictCache> verdictCaches, UrlValidators urlValidators) {
+        this.verdictCaches = verdictCaches;
+        this.urlValidators = urlValidators;
+    }
+
+    /**
+     * @param processorName Element name of the processor
+     * @param flowName      Name of the flow running the processor, or <code>null</code> if unknown
+     * @param valid         Whether the value was valid
+     * @param nanos         Time taken by the check
+     */
+    void record(String processorName, String flowName, boolean valid, long nanos) {
+        Processor processor = processors.get(processorName);
+        if (processor == null) {
+            processor = putIfAbsent(processors, processorName, new Processor());
+        }
+
+        processor.total.record(valid, nanos);
+        if (flowName != null) {
+            ProcessorMetrics flow = processor.flows.get(flowName);
+            if (flow == null) {
+                flow = putIfAbsent(processor.flows, flowName, new ProcessorMetrics());
+            }
+            flow.record(valid, nanos);
+        }
+    }
+
+    @Override
+    public List<ProcessorStatistics> getProcessorStatistics() {
+        List<ProcessorStatistics> statistics = new ArrayList<ProcessorStatistics>();
+        for (Map.Entry<String, Processor> processor : processors.entrySet()) {
+            statistics.add(processor.getValue().total.statistics(processor.getKey(), null));
+        }
+        for (Map.Entry<String, Processor> processor : processors.entrySet()) {
+            for (Map.Entry<String, ProcessorMetrics> flow : processor.getValue().flows.entrySet()) {
+                statistics.add(flow.getValue().statistics(processor.getKey(), flow.getKey()));
+            }
+        }
+        return statistics;
+    }
+
+    @Override
+    public Map<String, CacheStatistics> getVerdictCacheStatistics() {
+        return verdictCacheStatistics(verdictCaches);
+    }
+
+    static Map<String, CacheStatistics> verdictCacheStatistics(Map<String, VerdictCache> verdictCaches) {
+        Map<String, CacheStatistics> statistics = new LinkedHashMap<String, CacheStatistics>();
+        for (Map.Entry<String, VerdictCache> verdictCache : verdictCaches.entrySet()) {
+            statistics.put(verdictCache.getKey(), verdictCache.getValue().getStatistics());
+        }
+        return statistics;
+    }
+
+    @Override
+    public CacheStatistics getUrlValidatorCacheStatistics() {
+        return urlValidators.getStatistics();
+    }
+
+    @Override
+    public void reset() {
+        for (Processor processor : processors.values()) {
+            processor.total.reset();
+            for (ProcessorMetrics flow : processor.flows.values()) {
+                flow.reset();
+            }
+        }
+    }
+
+    private static <V> V putIfAbsent(ConcurrentMap<String, V> map, String key, V value) {
+        V existing = map.putIfAbsent(key, value);
+        return existing == null ? value : existing;
+    }
+
+    private static final class Processor {
+        private final ProcessorMetrics total = new ProcessorMetrics();
+        private final ConcurrentMap<String, ProcessorMetrics> flows = new ConcurrentHashMap<String, ProcessorMetrics>();
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management interface of the metrics of a validation config, registered under
+ * <code>org.mule.modules.validation:type=ValidationMetrics,name=&lt;metricsName&gt;</code>.
+ */
+public interface ValidationMetricsMXBean {
+    /**
+     * @return the totals of every processor used so far, followed by their usage within each flow
+     */
+    List<ProcessorStatistics> getProcessorStatistics();
+
+    /**
+     * @return the statistics of the verdict caches, by processor name
+     */
+    Map<String, CacheStatistics> getVerdictCacheStatistics();
+
+    /**
+     * @return the statistics of the cache of URL validators restricted to custom schemes
+     */
+    CacheStatistics getUrlValidatorCacheStatistics();
+
+    /**
+     * Sets every counter and histogram back to zero.
+     */
+    void reset();
+}
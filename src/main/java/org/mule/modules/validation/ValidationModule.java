@@ -10,44 +10,420 @@
 package org.mule.modules.validation;
 
 import org.apache.commons.validator.routines.BigDecimalValidator;
-import org.apache.commons.validator.routines.CodeValidator;
-import org.apache.commons.validator.routines.CreditCardValidator;
-import org.apache.commons.validator.routines.DateValidator;
 import org.apache.commons.validator.routines.DomainValidator;
 import org.apache.commons.validator.routines.DoubleValidator;
 import org.apache.commons.validator.routines.EmailValidator;
 import org.apache.commons.validator.routines.FloatValidator;
-import org.apache.commons.validator.routines.ISBNValidator;
-import org.apache.commons.validator.routines.InetAddressValidator;
 import org.apache.commons.validator.routines.IntegerValidator;
 import org.apache.commons.validator.routines.LongValidator;
 import org.apache.commons.validator.routines.PercentValidator;
-import org.apache.commons.validator.routines.RegexValidator;
 import org.apache.commons.validator.routines.ShortValidator;
-import org.apache.commons.validator.routines.TimeValidator;
 import org.apache.commons.validator.routines.UrlValidator;
+import org.mule.RequestContext;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.Module;
 import org.mule.api.annotations.Processor;
+import org.mule.api.annotations.lifecycle.Start;
+import org.mule.api.annotations.lifecycle.Stop;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
-import org.mule.transport.NullPayload;
+import org.mule.api.construct.FlowConstruct;
 import org.mule.util.StringUtils;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * A common issue when receiving data either electronically or from user input is verifying the integrity of the data.
  * This work is repetitive and becomes even more complicated when different sets of validation rules need to be applied
  * to the same set of data based on locale. Error messages may also vary by locale. This module addresses some of
  * these issues to speed development and maintenance of validation rules.
+ * <p/>
+ * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:config}
  *
  * @author MuleSoft, Inc.
  */
 @Module(name = "validation", schemaVersion = "1.0")
 public class ValidationModule {
+    /**
+     * Maximum number of compiled regular expression sets kept by {@link #validateUsingRegex}. Least recently used
+     * sets are evicted first. A value of zero disables caching.
+     */
+    @Configurable
+    @Optional
+    @Default("256")
+    private int regexCacheMaxSize = 256;
+
+    private BoundedCache<RegexKey, PatternSet> regexCache = new BoundedCache<RegexKey, PatternSet>(256);
+
+    /**
+     * Maximum number of characters that {@link #validateUsingRegex}, and the <code>regex</code> rules of the
+     * processors that take rule definitions, may read while matching a value with one regular expression by
+     * backtracking. An expression that exceeds it does not match, which protects flows from expressions that take
+     * exponential time on some values. A value of zero sets no limit.
+     */
+    @Configurable
+    @Optional
+    @Default("0")
+    private int regexStepLimit;
+
+    /**
+     * Maximum number of compiled rule plans kept by {@link #validateAll}, {@link #validateFields} and
+     * {@link #validateRecords}, and of compiled rules kept by {@link #validateCollection}. A value of zero disables
+     * caching.
+     */
+    @Configurable
+    @Optional
+    @Default("256")
+    private int rulePlanCacheMaxSize = 256;
+
+    private BoundedCache<List<String>, RulePlan> rulePlanCache = new BoundedCache<List<String>, RulePlan>(256);
+    private BoundedCache<List<String>, FieldPlan> fieldPlanCache = new BoundedCache<List<String>, FieldPlan>(256);
+
+    private final UrlValidators urlValidators = new UrlValidators(64);
+
+    private BoundedCache<String, Rule> ruleCache = new BoundedCache<String, Rule>(256);
+
+    private BoundedCache<List<String>, RecordPlan> recordPlanCache = new BoundedCache<List<String>, RecordPlan>(256);
+
+    /**
+     * Rule definitions compiled when the module starts, such as <code>email</code> or
+     * <code>regex(^\d{5}$)</code>. They are kept for the lifetime of the module and used by {@link #validateAll},
+     * {@link #validateFields}, {@link #validateCollection} and {@link #validateRecords} in place of compiling the same
+     * definitions again. An invalid definition fails the deployment.
+     */
+    @Configurable
+    @Optional
+    private List<String> precompiledRules;
+
+    private Map<String, Rule> preparedRules = Collections.emptyMap();
+
+    /**
+     * Number of threads validating the chunks of large collections in {@link #validateCollection}. Zero uses one
+     * thread per available processor and one validates every collection on the flow thread.
+     */
+    @Configurable
+    @Optional
+    @Default("0")
+    private int collectionParallelism;
+
+    /**
+     * Number of elements validated as one unit of work by {@link #validateCollection}. Collections that do not exceed
+     * this size are always validated on the flow thread.
+     */
+    @Configurable
+    @Optional
+    @Default("1024")
+    private int collectionChunkSize = 1024;
+
+    private ThreadPoolExecutor collectionExecutor;
+    private CollectionValidator collectionValidator = new CollectionValidator(null, 1024);
+
+    /**
+     * Number of threads applying the rules of {@link #validateAllAsync}. Zero uses one thread per available processor.
+     */
+    @Configurable
+    @Optional
+    @Default("0")
+    private int asyncParallelism;
+
+    /**
+     * Number of asynchronous validations that may wait for a thread. Once the queue is full the flow thread applies
+     * the rules itself, which slows the flow down instead of letting the pending validations grow without bound.
+     */
+    @Configurable
+    @Optional
+    @Default("256")
+    private int asyncQueueSize = 256;
+
+    private ThreadPoolExecutor asyncExecutor;
+
+    /**
+     * When true {@link #validateCreditCardNumber} checks the issuer prefix, the length and the Luhn check digit with a
+     * single scan of the number instead of the regular expressions of the commons validators.
+     */
+    @Configurable
+    @Optional
+    @Default("false")
+    private boolean fastCreditCardCheck;
+
+    /**
+     * Class names of the custom exceptions used by the processors of this config. They are resolved when the module
+     * starts so that a wrong class name fails the deployment instead of the first invalid message.
+     */
+    @Configurable
+    @Optional
+    private List<String> customExceptionClassNames;
+
+    /**
+     * When true the exceptions thrown on invalid values do not capture a stack trace. This applies to
+     * {@link InvalidException} and to custom exceptions that declare a public
+     * <code>(String processorName, Object value, boolean writableStackTrace)</code> constructor.
+     */
+    @Configurable
+    @Optional
+    @Default("false")
+    private boolean stacklessExceptions;
+
+    private final ExceptionFactory exceptionFactory = new ExceptionFactory();
+
+    /**
+     * When true every processor counts its passes and failures and records the latency of its check, both in total
+     * and per flow. The metrics are published as an MBean and returned by {@link #getProcessorStatistics()}. When false
+     * nothing is measured.
+     */
+    @Configurable
+    @Optional
+    @Default("false")
+    private boolean metricsEnabled;
+
+    /**
+     * Name of the metrics MBean of this config, which must be a valid {@link ObjectName} value. Defaults to a name
+     * unique to the config.
+     */
+    @Configurable
+    @Optional
+    private String metricsName;
+
+    private ValidationMetrics metrics;
+    private ObjectName metricsObjectName;
+
+    /**
+     * Maximum number of verdicts remembered by each of {@link #validateEmail}, {@link #validateDomain} and
+     * {@link #validateUrl}, so that a value seen again is not validated again. Only a salted 64 bit hash of each value
+     * is kept. A value of zero disables these caches.
+     */
+    @Configurable
+    @Optional
+    @Default("0")
+    private int verdictCacheMaxSize;
+
+    /**
+     * Number of seconds a remembered verdict is trusted. A value of zero keeps verdicts until newer ones replace them.
+     */
+    @Configurable
+    @Optional
+    @Default("0")
+    private int verdictCacheTtl;
+
+    private VerdictCache emailVerdicts;
+    private VerdictCache domainVerdicts;
+    private VerdictCache urlVerdicts;
+    private Map<String, VerdictCache> verdictCaches = Collections.emptyMap();
+
+    /**
+     * Path of a file listing the known top-level domains, such as the IANA <code>tlds-alpha-by-domain.txt</code> file
+     * or the public suffix list. Two letter domains are country codes. The list is used by {@link #validateDomain},
+     * {@link #validateTopLevelDomain}, {@link #validateTopLevelDomainCountry}, {@link #validateEmail} and the
+     * <code>domain</code>, <code>top-level-domain</code>, <code>top-level-domain-country</code> and <code>email</code>
+     * rules of every processor taking rule definitions. Email addresses validated without a strictness are then
+     * checked at the {@link EmailStrictness#TOP_LEVEL_DOMAIN} level. When not set the list built into commons-validator
+     * is used.
+     */
+    @Configurable
+    @Optional
+    private String topLevelDomainsFile;
+
+    /**
+     * Minimum number of seconds between two checks for changes of the top-level domains file. A changed file is read
+     * again and replaces the previous list without interrupting the validations. Zero reads the file only once.
+     */
+    @Configurable
+    @Optional
+    @Default("300")
+    private int topLevelDomainsRefreshInterval = 300;
+
+    private TopLevelDomains topLevelDomains;
+    private Rule domainRule = Rules.compile("domain");
+
+    /**
+     * Lists used by {@link #validateMembership}, keyed by the name processors refer to them with. Each value is the
+     * path of a file built by {@link MembershipListBuilder}. The files are memory-mapped when the module starts, so a
+     * missing or corrupt file fails the deployment, and take next to no heap however many entries they hold.
+     */
+    @Configurable
+    @Optional
+    private Map<String, String> membershipLists;
+
+    /**
+     * Minimum number of seconds between two checks for new versions of the membership files. A new version is mapped
+     * and replaces the previous one without interrupting the validations. Zero maps each file only once.
+     */
+    @Configurable
+    @Optional
+    @Default("60")
+    private int membershipRefreshInterval = 60;
+
+    private Map<String, MembershipList> memberships = Collections.emptyMap();
+
+    /**
+     * Checks the configuration, compiles the precompiled rules, resolves the configured custom exception classes, reads
+     * the top-level domains file, maps the membership files, creates the verdict caches, registers the metrics MBean when metrics are enabled and
+     * starts the executors used to validate collections and to apply rules asynchronously. Any of these steps failing
+     * fails the deployment.
+     *
+     * @throws IllegalArgumentException if an attribute is out of range or a precompiled rule is not valid
+     * @throws ClassNotFoundException   if one of the custom exception classes cannot be found
+     * @throws IOException              if the top-level domains file or a membership file cannot be read
+     * @throws JMException              if the metrics MBean cannot be registered
+     */
+    @Start
+    public void start() throws ClassNotFoundException, IOException, JMException {
+        validateConfiguration();
+
+        if (topLevelDomainsFile != null) {
+            topLevelDomains = new TopLevelDomains(new File(topLevelDomainsFile), topLevelDomainsRefreshInterval, TimeUnit.SECONDS);
+            domainRule = Rules.compile("domain", topLevelDomains, regexStepLimit);
+        }
+
+        if (precompiledRules != null) {
+            Map<String, Rule> rules = new HashMap<String, Rule>();
+            for (String definition : precompiledRules) {
+                Rule rule = Rules.compile(definition, topLevelDomains, regexStepLimit);
+                rules.put(definition.trim(), rule);
+            }
+            preparedRules = Collections.unmodifiableMap(rules);
+        }
+
+        if (customExceptionClassNames != null) {
+            for (String customExceptionClassName : customExceptionClassNames) {
+                exceptionFactory.resolve(customExceptionClassName);
+            }
+        }
+
+        if (membershipLists != null) {
+            Map<String, MembershipList> lists = new HashMap<String, MembershipList>();
+            for (Map.Entry<String, String> entry : membershipLists.entrySet()) {
+                lists.put(entry.getKey(), new MembershipList(new File(entry.getValue()), membershipRefreshInterval, TimeUnit.SECONDS));
+            }
+            memberships = Collections.unmodifiableMap(lists);
+        }
+
+        if (verdictCacheMaxSize > 0) {
+            emailVerdicts = new VerdictCache(verdictCacheMaxSize, verdictCacheTtl, TimeUnit.SECONDS);
+            domainVerdicts = new VerdictCache(verdictCacheMaxSize, verdictCacheTtl, TimeUnit.SECONDS);
+            urlVerdicts = new VerdictCache(verdictCacheMaxSize, verdictCacheTtl, TimeUnit.SECONDS);
+
+            Map<String, VerdictCache> caches = new LinkedHashMap<String, VerdictCache>();
+            caches.put("validate-email", emailVerdicts);
+            caches.put("validate-domain", domainVerdicts);
+            caches.put("validate-url", urlVerdicts);
+            verdictCaches = Collections.unmodifiableMap(caches);
+        }
+
+        if (metricsEnabled) {
+            String name = metricsName != null ? metricsName : "validation-" + Integer.toHexString(System.identityHashCode(this));
+            ValidationMetrics validationMetrics = new ValidationMetrics(verdictCaches, urlValidators);
+            metricsObjectName = new ObjectName("org.mule.modules.validation:type=ValidationMetrics,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(validationMetrics, metricsObjectName);
+            metrics = validationMetrics;
+        }
+
+        int parallelism = collectionParallelism > 0 ? collectionParallelism : Runtime.getRuntime().availableProcessors();
+        if (parallelism > 1) {
+            collectionExecutor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(parallelism * 2), new DaemonThreadFactory("validation-collection"),
+                    new RunOnCallerPolicy());
+            collectionExecutor.allowCoreThreadTimeOut(true);
+        }
+        collectionValidator = new CollectionValidator(collectionExecutor, collectionChunkSize);
+
+        int asyncThreads = asyncParallelism > 0 ? asyncParallelism : Runtime.getRuntime().availableProcessors();
+        asyncExecutor = new ThreadPoolExecutor(asyncThreads, asyncThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(asyncQueueSize), new DaemonThreadFactory("validation-async"),
+                new RunOnCallerPolicy());
+        asyncExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Checks the attributes of the config that are otherwise only used, and found to be wrong, when a message needs
+     * them.
+     *
+     * @throws IllegalArgumentException if an attribute is out of range
+     */
+    private void validateConfiguration() {
+        requireNonNegative("regexStepLimit", regexStepLimit);
+        requireNonNegative("collectionParallelism", collectionParallelism);
+        requireNonNegative("asyncParallelism", asyncParallelism);
+        if (asyncQueueSize <= 0) {
+            throw new IllegalArgumentException("asyncQueueSize must be positive but was " + asyncQueueSize);
+        }
+        requireNonNegative("verdictCacheMaxSize", verdictCacheMaxSize);
+        requireNonNegative("verdictCacheTtl", verdictCacheTtl);
+        requireNonNegative("topLevelDomainsRefreshInterval", topLevelDomainsRefreshInterval);
+        requireNonNegative("membershipRefreshInterval", membershipRefreshInterval);
+    }
+
+    private static void requireNonNegative(String attribute, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(attribute + " cannot be negative but was " + value);
+        }
+    }
+
+    /**
+     * Stops the executors used to validate collections and to apply rules asynchronously, releases the membership
+     * files and unregisters the metrics MBean. Asynchronous validations that have not started yet are cancelled, and
+     * {@link #awaitValidation} reports them as such; validations started during or after the stop are applied on the
+     * flow thread.
+     *
+     * @throws JMException if the metrics MBean cannot be unregistered
+     */
+    @Stop
+    public void stop() throws JMException {
+        if (asyncExecutor != null) {
+            shutdown(asyncExecutor);
+            asyncExecutor = null;
+        }
+
+        if (collectionExecutor != null) {
+            shutdown(collectionExecutor);
+            collectionExecutor = null;
+        }
+        collectionValidator = new CollectionValidator(null, collectionChunkSize);
+        memberships = Collections.emptyMap();
+
+        if (metricsObjectName != null) {
+            metrics = null;
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsObjectName);
+            metricsObjectName = null;
+        }
+    }
+
+    /**
+     * Stops an executor and cancels the tasks it had not started yet, so that nobody waits forever for their outcome.
+     */
+    private static void shutdown(ThreadPoolExecutor executor) {
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+    }
+
     /**
      * If the specified <code>domain</code> does not parses as a valid domain name with a recognized top-level domain then
      * throw an exception.
@@ -55,16 +431,19 @@ public class ValidationModule {
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:is-domain}
      *
      * @param domain                   Domain name to validate
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validateDomain(String domain, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        DomainValidator validator = DomainValidator.getInstance();
+    public void validateDomain(String domain, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        VerdictCache verdicts = domainVerdicts;
 
-        if (!validator.isValid(domain)) {
-            throw buildException(customExceptionClassName);
-        }
+        boolean valid = verdicts == null ? domainRule.isValid(domain) : verdicts.isValid(domain, topLevelDomainsVersion(), domainRule);
+
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-domain", domain);
     }
 
     /**
@@ -74,16 +453,18 @@ public class ValidationModule {
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-top-level-domain}
      *
      * @param topLevelDomain           Domain name to validate
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validateTopLevelDomain(String topLevelDomain, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        DomainValidator validator = DomainValidator.getInstance();
+    public void validateTopLevelDomain(String topLevelDomain, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        TopLevelDomains domains = topLevelDomains;
+        boolean valid = domains == null ? DomainValidator.getInstance().isValidTld(topLevelDomain) : domains.isValidTld(topLevelDomain);
 
-        if (!validator.isValidTld(topLevelDomain)) {
-            throw buildException(customExceptionClassName);
-        }
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-top-level-domain", topLevelDomain);
     }
 
     /**
@@ -93,16 +474,18 @@ public class ValidationModule {
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-top-level-domain-country}
      *
      * @param countryCode              Country code to validate
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validateTopLevelDomainCountry(String countryCode, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        DomainValidator validator = DomainValidator.getInstance();
+    public void validateTopLevelDomainCountry(String countryCode, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        TopLevelDomains domains = topLevelDomains;
+        boolean valid = domains == null ? DomainValidator.getInstance().isValidCountryCodeTld(countryCode) : domains.isValidCountryCodeTld(countryCode);
 
-        if (!validator.isValidCountryCodeTld(countryCode)) {
-            throw buildException(customExceptionClassName);
-        }
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-top-level-domain-country", countryCode);
     }
 
     /**
@@ -112,59 +495,78 @@ public class ValidationModule {
      *
      * @param creditCardNumber         Credit card number to validate
      * @param creditCardTypes          Credit card types to validate
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validateCreditCardNumber(String creditCardNumber, List<CreditCardType> creditCardTypes, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        CodeValidator[] validators = new CodeValidator[creditCardTypes.size()];
-        int i = 0;
-        for (CreditCardType type : creditCardTypes) {
-            validators[i] = type.getCodeValidator();
-            i++;
-        }
+    public void validateCreditCardNumber(String creditCardNumber, List<CreditCardType> creditCardTypes, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        int mask = CreditCardValidators.mask(creditCardTypes);
 
-        CreditCardValidator validator = new CreditCardValidator(validators);
-
-        if (validator.validate(creditCardNumber) == null) {
-            throw buildException(customExceptionClassName);
+        boolean valid;
+        if (fastCreditCardCheck) {
+            valid = CreditCardValidators.isValid(creditCardNumber, mask);
+        } else {
+            valid = CreditCardValidators.get(mask).validate(creditCardNumber) != null;
         }
+
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-credit-card-number", creditCardNumber);
     }
 
     /**
-     * If the specified <code>emailAddress</code> is not a valid one throw an exception.
+     * If the specified <code>emailAddress</code> is not a valid one throw an exception. When <code>strictness</code> is
+     * set, or when a top-level domains file is configured, the address is checked by a single scan of its characters
+     * instead of by the commons validator, at the {@link EmailStrictness#TOP_LEVEL_DOMAIN} level if no strictness is
+     * set.
      * <p/>
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-email}
      *
      * @param emailAddress             Email address to validate
+     * @param strictness               Checks to apply instead of those of the commons validator
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validateEmail(String emailAddress, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        EmailValidator validator = EmailValidator.getInstance();
+    public void validateEmail(String emailAddress, @Optional EmailStrictness strictness, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        VerdictCache verdicts = emailVerdicts;
 
-        if (!validator.isValid(emailAddress)) {
-            throw buildException(customExceptionClassName);
+        boolean valid;
+        if (verdicts == null || emailAddress == null) {
+            valid = isValidEmail(emailAddress, strictness);
+        } else {
+            long key = verdicts.key(emailAddress, (strictness == null ? 0 : strictness.ordinal() + 1) | topLevelDomainsVersion() << 8);
+            int cached = verdicts.get(key);
+            valid = cached == VerdictCache.UNKNOWN ? verdicts.put(key, isValidEmail(emailAddress, strictness)) : cached == VerdictCache.VALID;
         }
+
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-email", emailAddress);
     }
 
     /**
-     * If the specified <code>ipAddress</code> is not a valid one throw an exception.
+     * If the specified <code>ipAddress</code> is not a valid one throw an exception. Both IPv4 and IPv6 addresses are
+     * accepted unless <code>version</code> restricts them to one of the two.
      * <p/>
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-ip-address}
      *
      * @param ipAddress                IP address to validate
+     * @param version                  Versions of the addresses to accept
+     * @param allowPrivate             Accept private, loopback, link-local and unspecified addresses
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validateIpAddress(String ipAddress, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        InetAddressValidator validator = InetAddressValidator.getInstance();
+    public void validateIpAddress(String ipAddress, @Optional @Default("ANY") IpVersion version, @Optional @Default("true") boolean allowPrivate,
+                                  @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
 
-        if (!validator.isValid(ipAddress)) {
-            throw buildException(customExceptionClassName);
-        }
+        verdict(IpAddresses.isValid(ipAddress, version, allowPrivate), startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-ip-address", ipAddress);
     }
 
     /**
@@ -173,16 +575,17 @@ public class ValidationModule {
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-percentage}
      *
      * @param percentage               Percentage to validate
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validatePercentage(String percentage, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
+    public void validatePercentage(String percentage, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
         BigDecimalValidator validator = PercentValidator.getInstance();
 
-        if (!validator.isValid(percentage)) {
-            throw buildException(customExceptionClassName);
-        }
+        verdict(validator.isValid(percentage), startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-percentage", percentage);
     }
 
     /**
@@ -191,16 +594,16 @@ public class ValidationModule {
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-isbn10}
      *
      * @param isbnCode                 ISBN code to validate
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor(name = "validate-isbn10")
-    public void validateISBN10(String isbnCode, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        ISBNValidator validator = ISBNValidator.getInstance();
+    public void validateISBN10(String isbnCode, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
 
-        if (!validator.isValidISBN10(isbnCode)) {
-            throw buildException(customExceptionClassName);
-        }
+        verdict(CheckDigits.isIsbn10(isbnCode), startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-isbn10", isbnCode);
     }
 
     /**
@@ -209,16 +612,61 @@ public class ValidationModule {
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-isbn13}
      *
      * @param isbnCode                 ISBN code to validate
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor(name = "validate-isbn13")
-    public void validateISBN13(String isbnCode, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        ISBNValidator validator = ISBNValidator.getInstance();
+    public void validateISBN13(String isbnCode, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
 
-        if (!validator.isValidISBN13(isbnCode)) {
-            throw buildException(customExceptionClassName);
-        }
+        verdict(CheckDigits.isIsbn13(isbnCode), startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-isbn13", isbnCode);
+    }
+
+    /**
+     * If the check digits of the specified <code>code</code> are not valid for the scheme throw an exception. The
+     * characters listed in <code>separators</code>, such as hyphens or spaces, are ignored wherever they appear; any
+     * other character that is not part of the code makes it invalid.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-check-digit}
+     *
+     * @param code                     Code to validate
+     * @param scheme                   Check digit scheme of the code
+     * @param separators               Characters ignored in the code
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @throws Exception if not valid
+     */
+    @Processor
+    public void validateCheckDigit(String code, CheckDigitScheme scheme, @Optional String separators,
+                                   @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+
+        verdict(CheckDigits.isValid(code, scheme, separators), startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-check-digit", code);
+    }
+
+    /**
+     * If the specified <code>iban</code> is not a valid international bank account number throw an exception. The
+     * country code, the length for the country and the MOD 97-10 check digits are verified. Spaces are ignored, so
+     * that numbers can be written in groups of four, unless other <code>separators</code> are given.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-iban}
+     *
+     * @param iban                     IBAN to validate
+     * @param separators               Characters ignored in the IBAN, a space by default
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @throws Exception if not valid
+     */
+    @Processor
+    public void validateIban(String iban, @Optional String separators,
+                             @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+
+        verdict(CheckDigits.isValid(iban, CheckDigitScheme.IBAN, separators != null ? separators : " "), startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-iban", iban);
     }
 
     /**
@@ -231,7 +679,10 @@ public class ValidationModule {
      * @param allowAllSchemes          Allows all validly formatted schemes to pass validation instead of supplying a set of valid schemes.
      * @param allowLocalURLs           Allow local URLs, such as http://localhost/ or http://machine/ .
      * @param noFragments              Enabling this options disallows any URL fragments.
+     * @param schemes                  Schemes accepted instead of the default http, https and ftp
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
@@ -240,99 +691,100 @@ public class ValidationModule {
                             @Optional @Default("false") boolean allowAllSchemes,
                             @Optional @Default("false") boolean allowLocalURLs,
                             @Optional @Default("false") boolean noFragments,
-                            @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        long options = 0;
+                            @Optional List<String> schemes,
+                            @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        UrlValidator validator = urlValidators.get(allowTwoSlashes, allowAllSchemes, allowLocalURLs, noFragments, schemes);
+        VerdictCache verdicts = urlVerdicts;
 
-        if (allowAllSchemes) {
-            options |= UrlValidator.ALLOW_ALL_SCHEMES;
-        }
-        if (allowTwoSlashes) {
-            options |= UrlValidator.ALLOW_2_SLASHES;
-        }
-        if (allowLocalURLs) {
-            options |= UrlValidator.ALLOW_LOCAL_URLS;
-        }
-        if (noFragments) {
-            options |= UrlValidator.NO_FRAGMENTS;
+        boolean valid;
+        if (verdicts == null || url == null) {
+            valid = validator.isValid(url);
+        } else {
+            long key = verdicts.key(url, UrlValidators.fingerprint(allowTwoSlashes, allowAllSchemes, allowLocalURLs, noFragments, schemes));
+            int cached = verdicts.get(key);
+            valid = cached == VerdictCache.UNKNOWN ? verdicts.put(key, validator.isValid(url)) : cached == VerdictCache.VALID;
         }
 
-        UrlValidator validator = new UrlValidator(options);
-
-        if (!validator.isValid(url)) {
-            throw buildException(customExceptionClassName);
-        }
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-url", url);
     }
 
     /**
-     * If the specified <code>time</code> is not a valid one throw an exception.
+     * If the specified <code>time</code> is not a valid one throw an exception. With the <code>ISO-8601</code> pattern
+     * the time is checked by a dedicated scanner instead of a format.
      * <p/>
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-time}
      *
      * @param time                     Time to validate
      * @param locale                   The locale to use for the format
-     * @param pattern                  The pattern used to format the value
+     * @param pattern                  The pattern used to format the value, or <code>ISO-8601</code>
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validateTime(String time, @Optional @Default("US") Locale locale, @Optional String pattern, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        TimeValidator validator = TimeValidator.getInstance();
+    public void validateTime(String time, @Optional @Default("US") Locale locale, @Optional String pattern, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        boolean valid = ValueParsers.isValidTime(time, pattern, locale);
 
-        if (pattern != null) {
-            if (!validator.isValid(time, locale.getJavaLocale())) {
-                throw buildException(customExceptionClassName);
-            }
-        } else {
-            if (!validator.isValid(time, pattern, locale.getJavaLocale())) {
-                throw buildException(customExceptionClassName);
-            }
-        }
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-time", time);
     }
 
     /**
-     * If the specified <code>date</code> is not a valid one throw an exception.
+     * If the specified <code>date</code> is not a valid one throw an exception. With the <code>ISO-8601</code> pattern
+     * dates such as <code>2010-07-04</code> and timestamps such as <code>2010-07-04T18:34:05.123+02:00</code> are
+     * checked, calendar included, by a dedicated scanner instead of a format.
      * <p/>
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-date}
      *
      * @param date                     Date to validate
      * @param locale                   The locale to use for the format
-     * @param pattern                  The pattern used to format the value
+     * @param pattern                  The pattern used to format the value, or <code>ISO-8601</code>
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validateDate(String date, @Optional @Default("US") Locale locale, @Optional String pattern, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        DateValidator validator = DateValidator.getInstance();
+    public void validateDate(String date, @Optional @Default("US") Locale locale, @Optional String pattern, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        boolean valid = ValueParsers.isValidDate(date, pattern, locale);
 
-        if (pattern != null) {
-            if (!validator.isValid(date, locale.getJavaLocale())) {
-                throw buildException(customExceptionClassName);
-            }
-        } else {
-            if (!validator.isValid(date, pattern, locale.getJavaLocale())) {
-                throw buildException(customExceptionClassName);
-            }
-        }
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-date", date);
     }
 
     /**
      * If the specified <code>value</code> does not match any of the regexs then throw an exception.
      * <p/>
+     * When <code>combined</code> is true the regexs are compiled together into one automaton that matches the value
+     * in a single pass, however many regexs there are. Regexs using back references, lookarounds, possessive
+     * quantifiers or other constructs that need backtracking are still tried one after the other.
+     * <p/>
      * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-using-regex}
      *
      * @param value                    Value to match
      * @param regexs                   Set of regular expressions to test against
      * @param caseSensitive            when true matching is case sensitive, otherwise matching is case in-sensitive
+     * @param combined                 when true the regexs are matched together in a single pass
+     * @param matchedRegexVariable     Name of the flow variable that receives the index of the first regex matching the value
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
-    public void validateUsingRegex(String value, List<String> regexs, @Optional @Default("false") boolean caseSensitive, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        RegexValidator validator = new RegexValidator(regexs.toArray(new String[]{}), caseSensitive);
+    public void validateUsingRegex(String value, List<String> regexs, @Optional @Default("false") boolean caseSensitive,
+                                   @Optional @Default("false") boolean combined, @Optional String matchedRegexVariable,
+                                   @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        PatternSet patterns = regexCache.get(new RegexKey(regexs, caseSensitive, combined), REGEX_FACTORY);
 
-        if (!validator.isValid(value)) {
-            throw buildException(customExceptionClassName);
+        int matched = patterns.match(value, regexStepLimit);
+        if (matched != PatternSet.NO_MATCH && matchedRegexVariable != null) {
+            muleMessage.setInvocationProperty(matchedRegexVariable, matched);
         }
+        verdict(matched != PatternSet.NO_MATCH, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-using-regex", value);
     }
 
     /**
@@ -345,35 +797,25 @@ public class ValidationModule {
      * @param pattern                  The pattern used to format the value
      * @param minValue                 The minimum value
      * @param maxValue                 The maximum value
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
     public void validateLong(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
                              @Optional Long minValue, @Optional Long maxValue,
-                             @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
+                             @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
         LongValidator validator = LongValidator.getInstance();
 
-        Long newValue = null;
-        if (pattern != null) {
-            newValue = validator.validate(value, pattern, locale.getJavaLocale());
-        } else {
-            newValue = validator.validate(value, locale.getJavaLocale());
-        }
+        Long newValue = ValueParsers.parseLong(value, pattern, locale);
 
-        if (newValue == null) {
-            throw buildException(customExceptionClassName);
-        }
-        if (minValue != null) {
-            if (!validator.minValue(newValue, minValue)) {
-                throw buildException(customExceptionClassName);
-            }
-        }
-        if (maxValue != null) {
-            if (!validator.maxValue(newValue, maxValue)) {
-                throw buildException(customExceptionClassName);
-            }
-        }
+        boolean valid = newValue != null &&
+                (minValue == null || validator.minValue(newValue, minValue)) &&
+                (maxValue == null || validator.maxValue(newValue, maxValue));
+
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-long", value);
     }
 
     /**
@@ -386,35 +828,25 @@ public class ValidationModule {
      * @param pattern                  The pattern used to format the value
      * @param minValue                 The minimum value
      * @param maxValue                 The maximum value
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
     public void validateInteger(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
                                 @Optional Integer minValue, @Optional Integer maxValue,
-                                @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
+                                @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
         IntegerValidator validator = IntegerValidator.getInstance();
 
-        Integer newValue = null;
-        if (pattern != null) {
-            newValue = validator.validate(value, pattern, locale.getJavaLocale());
-        } else {
-            newValue = validator.validate(value, locale.getJavaLocale());
-        }
+        Integer newValue = ValueParsers.parseInteger(value, pattern, locale);
 
-        if (newValue == null) {
-            throw buildException(customExceptionClassName);
-        }
-        if (minValue != null) {
-            if (!validator.minValue(newValue, minValue)) {
-                throw buildException(customExceptionClassName);
-            }
-        }
-        if (maxValue != null) {
-            if (!validator.maxValue(newValue, maxValue)) {
-                throw buildException(customExceptionClassName);
-            }
-        }
+        boolean valid = newValue != null &&
+                (minValue == null || validator.minValue(newValue, minValue)) &&
+                (maxValue == null || validator.maxValue(newValue, maxValue));
+
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-integer", value);
     }
 
     /**
@@ -427,35 +859,25 @@ public class ValidationModule {
      * @param pattern                  The pattern used to format the value
      * @param minValue                 The minimum value
      * @param maxValue                 The maximum value
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
     public void validateFloat(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
                               @Optional Float minValue, @Optional Float maxValue,
-                              @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
+                              @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
         FloatValidator validator = FloatValidator.getInstance();
 
-        Float newValue = null;
-        if (pattern != null) {
-            newValue = validator.validate(value, pattern, locale.getJavaLocale());
-        } else {
-            newValue = validator.validate(value, locale.getJavaLocale());
-        }
+        Float newValue = ValueParsers.parseFloat(value, pattern, locale);
 
-        if (newValue == null) {
-            throw buildException(customExceptionClassName);
-        }
-        if (minValue != null) {
-            if (!validator.minValue(newValue, minValue)) {
-                throw buildException(customExceptionClassName);
-            }
-        }
-        if (maxValue != null) {
-            if (!validator.maxValue(newValue, maxValue)) {
-                throw buildException(customExceptionClassName);
-            }
-        }
+        boolean valid = newValue != null &&
+                (minValue == null || validator.minValue(newValue, minValue)) &&
+                (maxValue == null || validator.maxValue(newValue, maxValue));
+
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-float", value);
     }
 
     /**
@@ -468,158 +890,918 @@ public class ValidationModule {
      * @param pattern                  The pattern used to format the value
      * @param minValue                 The minimum value
      * @param maxValue                 The maximum value
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
      * @throws Exception if not valid
      */
     @Processor
     public void validateDouble(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
                                @Optional Double minValue, @Optional Double maxValue,
-                               @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
+                               @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
         DoubleValidator validator = DoubleValidator.getInstance();
 
-        Double newValue = null;
-        if (pattern != null) {
-            newValue = validator.validate(value, pattern, locale.getJavaLocale());
-        } else {
-            newValue = validator.validate(value, locale.getJavaLocale());
-        }
+        Double newValue = ValueParsers.parseDouble(value, pattern, locale);
 
-        if (newValue == null) {
-            throw buildException(customExceptionClassName);
-        }
-        if (minValue != null) {
-            if (!validator.minValue(newValue, minValue)) {
-                throw buildException(customExceptionClassName);
-            }
-        }
-        if (maxValue != null) {
-            if (!validator.maxValue(newValue, maxValue)) {
-                throw buildException(customExceptionClassName);
-            }
-        }
-    }
+        boolean valid = newValue != null &&
+                (minValue == null || validator.minValue(newValue, minValue)) &&
+                (maxValue == null || validator.maxValue(newValue, maxValue));
 
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-double", value);
+    }
 
     /**
-     * If the specified <code>object</code> is empty or null throw an exception.
+     * If the specified <code>value</code> is a valid {@link Long} within the range convert it, otherwise throw an
+     * exception. The value is parsed once and the result replaces the payload, or is stored in
+     * <code>targetVariable</code> when it is set.
      * <p/>
-     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-not-empty}
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:convert-to-long}
      *
-     * @param object                   Object to validate
+     * @param value                    Value to convert
+     * @param locale                   The locale to use for the format
+     * @param pattern                  The pattern used to format the value
+     * @param minValue                 The minimum value
+     * @param maxValue                 The maximum value
+     * @param targetVariable           Name of the flow variable that receives the converted value instead of the payload
      * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @return the converted value, or the unchanged payload when <code>targetVariable</code> is set
      * @throws Exception if not valid
      */
     @Processor
-    public void validateNotEmpty(@Optional @Default("#[payload]") Object object, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        if (object == null || object instanceof NullPayload) {
-            throw buildException(customExceptionClassName);
-        }
+    public Object convertToLong(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
+                                @Optional Long minValue, @Optional Long maxValue,
+                                @Optional String targetVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        LongValidator validator = LongValidator.getInstance();
 
-        if (isCollection(object.getClass())) {
-            if (((Collection) object).size() == 0) {
-                throw buildException(customExceptionClassName);
-            }
-        }
+        Long newValue = ValueParsers.parseLong(value, pattern, locale);
 
-        if (isMap(object.getClass())) {
-            if (((Map) object).size() == 0) {
-                throw buildException(customExceptionClassName);
-            }
-        }
+        boolean valid = newValue != null &&
+                (minValue == null || validator.minValue(newValue, minValue)) &&
+                (maxValue == null || validator.maxValue(newValue, maxValue));
 
-        if (object instanceof String) {
-            if (((String) object).length() == 0) {
-                throw buildException(customExceptionClassName);
-            }
-        }
+        return converted(valid ? newValue : null, startTime, muleMessage, targetVariable, customExceptionClassName, "convert-to-long", value);
     }
 
     /**
-     * If the specified <code>input</code> is not within the valid limits throw an exception.
+     * If the specified <code>value</code> is a valid {@link Integer} within the range convert it, otherwise throw an
+     * exception. The value is parsed once and the result replaces the payload, or is stored in
+     * <code>targetVariable</code> when it is set.
      * <p/>
-     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-length}
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:convert-to-integer}
      *
-     * @param input                     String to validate
-     * @param minValue                  the minimum value
-     * @param maxValue                  the maximum value
-     * @param customExceptionClassName  Class name of the exception to throw
-     * @throws Exception Exception if not valid
+     * @param value                    Value to convert
+     * @param locale                   The locale to use for the format
+     * @param pattern                  The pattern used to format the value
+     * @param minValue                 The minimum value
+     * @param maxValue                 The maximum value
+     * @param targetVariable           Name of the flow variable that receives the converted value instead of the payload
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @return the converted value, or the unchanged payload when <code>targetVariable</code> is set
+     * @throws Exception if not valid
      */
     @Processor
-    public void validateLength(String input,
-                               @Optional @Default("0") Integer minValue, Integer maxValue,
-                               @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName) throws Exception {
-        if(input == null || maxValue == null) {
-            throw buildException(customExceptionClassName);
-        }
-
-        int inputLength = input.length();
-        if(inputLength < minValue || inputLength > maxValue) {
-            throw buildException(customExceptionClassName);
-        }
-    }
+    public Object convertToInteger(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
+                                   @Optional Integer minValue, @Optional Integer maxValue,
+                                   @Optional String targetVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        IntegerValidator validator = IntegerValidator.getInstance();
 
-    private Exception buildException(String customExceptionClassName) throws ClassNotFoundException, IllegalAccessException, InstantiationException {
-        Class<?> exceptionClass = Class.forName(customExceptionClassName);
+        Integer newValue = ValueParsers.parseInteger(value, pattern, locale);
 
-        if (!isException(exceptionClass)) {
-            throw new IllegalArgumentException("The class name must be that of a Throwable class");
-        }
+        boolean valid = newValue != null &&
+                (minValue == null || validator.minValue(newValue, minValue)) &&
+                (maxValue == null || validator.maxValue(newValue, maxValue));
 
-        return (Exception) exceptionClass.newInstance();
+        return converted(valid ? newValue : null, startTime, muleMessage, targetVariable, customExceptionClassName, "convert-to-integer", value);
     }
 
     /**
-     * Checks whether the specified class parameter is an instance of {@link Exception }
+     * If the specified <code>value</code> is a valid {@link Float} within the range convert it, otherwise throw an
+     * exception. The value is parsed once and the result replaces the payload, or is stored in
+     * <code>targetVariable</code> when it is set.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:convert-to-float}
      *
-     * @param clazz <code>Class</code> to check.
-     * @return
+     * @param value                    Value to convert
+     * @param locale                   The locale to use for the format
+     * @param pattern                  The pattern used to format the value
+     * @param minValue                 The minimum value
+     * @param maxValue                 The maximum value
+     * @param targetVariable           Name of the flow variable that receives the converted value instead of the payload
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @return the converted value, or the unchanged payload when <code>targetVariable</code> is set
+     * @throws Exception if not valid
      */
-    private boolean isException(Class clazz) {
-        List<Class> classes = new ArrayList<Class>();
-        computeClassHierarchy(clazz, classes);
-        return classes.contains(Exception.class);
-    }
+    @Processor
+    public Object convertToFloat(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
+                                 @Optional Float minValue, @Optional Float maxValue,
+                                 @Optional String targetVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        FloatValidator validator = FloatValidator.getInstance();
 
-    /**
-     * Checks whether the specified class parameter is an instance of {@link Collection }
-     *
-     * @param clazz <code>Class</code> to check.
-     * @return
-     */
-    private boolean isCollection(Class clazz) {
-        List<Class> classes = new ArrayList<Class>();
-        computeClassHierarchy(clazz, classes);
-        return classes.contains(Collection.class);
-    }
+        Float newValue = ValueParsers.parseFloat(value, pattern, locale);
 
-    /**
-     * Checks whether the specified class parameter is an instance of {@link Collection }
-     *
-     * @param clazz <code>Class</code> to check.
-     * @return
-     */
-    private boolean isMap(Class clazz) {
-        List<Class> classes = new ArrayList<Class>();
-        computeClassHierarchy(clazz, classes);
-        return classes.contains(Map.class);
+        boolean valid = newValue != null &&
+                (minValue == null || validator.minValue(newValue, minValue)) &&
+                (maxValue == null || validator.maxValue(newValue, maxValue));
+
+        return converted(valid ? newValue : null, startTime, muleMessage, targetVariable, customExceptionClassName, "convert-to-float", value);
     }
 
     /**
-     * Get all superclasses and interfaces recursively.
+     * If the specified <code>value</code> is a valid {@link Double} within the range convert it, otherwise throw an
+     * exception. The value is parsed once and the result replaces the payload, or is stored in
+     * <code>targetVariable</code> when it is set.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:convert-to-double}
+     *
+     * @param value                    Value to convert
+     * @param locale                   The locale to use for the format
+     * @param pattern                  The pattern used to format the value
+     * @param minValue                 The minimum value
+     * @param maxValue                 The maximum value
+     * @param targetVariable           Name of the flow variable that receives the converted value instead of the payload
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @return the converted value, or the unchanged payload when <code>targetVariable</code> is set
+     * @throws Exception if not valid
+     */
+    @Processor
+    public Object convertToDouble(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
+                                  @Optional Double minValue, @Optional Double maxValue,
+                                  @Optional String targetVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        DoubleValidator validator = DoubleValidator.getInstance();
+
+        Double newValue = ValueParsers.parseDouble(value, pattern, locale);
+
+        boolean valid = newValue != null &&
+                (minValue == null || validator.minValue(newValue, minValue)) &&
+                (maxValue == null || validator.maxValue(newValue, maxValue));
+
+        return converted(valid ? newValue : null, startTime, muleMessage, targetVariable, customExceptionClassName, "convert-to-double", value);
+    }
+
+    /**
+     * If the specified <code>value</code> is a valid date convert it to a {@link Date}, otherwise throw an exception.
+     * The value is parsed once and the result replaces the payload, or is stored in <code>targetVariable</code> when it
+     * is set.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:convert-to-date}
+     *
+     * @param value                    Value to convert
+     * @param locale                   The locale to use for the format
+     * @param pattern                  The pattern used to format the value, or <code>ISO-8601</code>
+     * @param targetVariable           Name of the flow variable that receives the converted value instead of the payload
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @return the converted value, or the unchanged payload when <code>targetVariable</code> is set
+     * @throws Exception if not valid
+     */
+    @Processor
+    public Object convertToDate(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
+                                @Optional String targetVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        Date newValue = ValueParsers.parseDate(value, pattern, locale);
+
+        return converted(newValue, startTime, muleMessage, targetVariable, customExceptionClassName, "convert-to-date", value);
+    }
+
+    /**
+     * If the specified <code>value</code> is a valid time convert it to a {@link Date}, otherwise throw an exception.
+     * The value is parsed once and the result replaces the payload, or is stored in <code>targetVariable</code> when it
+     * is set.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:convert-to-time}
+     *
+     * @param value                    Value to convert
+     * @param locale                   The locale to use for the format
+     * @param pattern                  The pattern used to format the value, or <code>ISO-8601</code>
+     * @param targetVariable           Name of the flow variable that receives the converted value instead of the payload
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @return the converted value, or the unchanged payload when <code>targetVariable</code> is set
+     * @throws Exception if not valid
+     */
+    @Processor
+    public Object convertToTime(String value, @Optional @Default("US") Locale locale, @Optional String pattern,
+                                @Optional String targetVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        Date newValue = ValueParsers.parseTime(value, pattern, locale);
+
+        return converted(newValue, startTime, muleMessage, targetVariable, customExceptionClassName, "convert-to-time", value);
+    }
+
+
+    /**
+     * If the specified <code>object</code> is empty or null throw an exception. Collections, maps, character
+     * sequences and arrays are empty when they have no elements or characters, iterators when they have no next
+     * element and streams that can be peeked at without being consumed when they have no more bytes.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-not-empty}
+     *
+     * @param object                   Object to validate
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @throws Exception if not valid
+     */
+    @Processor
+    public void validateNotEmpty(@Optional @Default("#[payload]") Object object, @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+
+        verdict(!Emptiness.isEmpty(object), startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-not-empty", object);
+    }
+
+    /**
+     * If the specified <code>input</code> is not within the valid limits throw an exception.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-length}
+     *
+     * @param input                     String to validate
+     * @param minValue                  the minimum value
+     * @param maxValue                  the maximum value
+     * @param verdictVariable           Name of the flow variable that receives the outcome instead of throwing an exception
+     * @param customExceptionClassName  Class name of the exception to throw
+     * @param muleMessage               The current message
+     * @throws Exception Exception if not valid
+     */
+    @Processor
+    public void validateLength(String input,
+                               @Optional @Default("0") Integer minValue, Integer maxValue,
+                               @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        boolean valid = input != null && maxValue != null &&
+                input.length() >= minValue && input.length() <= maxValue;
+
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-length", input);
+    }
+
+    public List<String> getPrecompiledRules() {
+        return precompiledRules;
+    }
+
+    public void setPrecompiledRules(List<String> precompiledRules) {
+        this.precompiledRules = precompiledRules;
+    }
+
+    public int getRegexCacheMaxSize() {
+        return regexCacheMaxSize;
+    }
+
+    public void setRegexCacheMaxSize(int regexCacheMaxSize) {
+        this.regexCacheMaxSize = regexCacheMaxSize;
+        this.regexCache = new BoundedCache<RegexKey, PatternSet>(regexCacheMaxSize);
+    }
+
+    public int getRegexStepLimit() {
+        return regexStepLimit;
+    }
+
+    public void setRegexStepLimit(int regexStepLimit) {
+        this.regexStepLimit = regexStepLimit;
+    }
+
+    public int getRulePlanCacheMaxSize() {
+        return rulePlanCacheMaxSize;
+    }
+
+    public void setRulePlanCacheMaxSize(int rulePlanCacheMaxSize) {
+        this.rulePlanCacheMaxSize = rulePlanCacheMaxSize;
+        this.rulePlanCache = new BoundedCache<List<String>, RulePlan>(rulePlanCacheMaxSize);
+        this.fieldPlanCache = new BoundedCache<List<String>, FieldPlan>(rulePlanCacheMaxSize);
+        this.ruleCache = new BoundedCache<String, Rule>(rulePlanCacheMaxSize);
+        this.recordPlanCache = new BoundedCache<List<String>, RecordPlan>(rulePlanCacheMaxSize);
+    }
+
+    public int getCollectionParallelism() {
+        return collectionParallelism;
+    }
+
+    public void setCollectionParallelism(int collectionParallelism) {
+        this.collectionParallelism = collectionParallelism;
+    }
+
+    public int getAsyncParallelism() {
+        return asyncParallelism;
+    }
+
+    public void setAsyncParallelism(int asyncParallelism) {
+        this.asyncParallelism = asyncParallelism;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    public int getCollectionChunkSize() {
+        return collectionChunkSize;
+    }
+
+    public void setCollectionChunkSize(int collectionChunkSize) {
+        this.collectionChunkSize = collectionChunkSize;
+        this.collectionValidator = new CollectionValidator(collectionExecutor, collectionChunkSize);
+    }
+
+    /**
+     * Returns the counters of the compiled regular expression cache used by {@link #validateUsingRegex}.
+     *
+     * @return a snapshot of the cache statistics
+     */
+    public CacheStatistics getRegexCacheStatistics() {
+        return regexCache.getStatistics();
+    }
+
+    /**
+     * Returns the counters of the cache of the validators built by {@link #validateUrl} for custom schemes. The same
+     * statistics are published by the metrics MBean.
+     *
+     * @return a snapshot of the cache statistics
+     */
+    public CacheStatistics getUrlValidatorCacheStatistics() {
+        return urlValidators.getStatistics();
+    }
+
+    /**
+     * Returns the metrics of every processor used so far, in total and per flow. The same statistics are published by
+     * the metrics MBean.
+     *
+     * @return a snapshot of the processor statistics, empty when metrics are disabled
+     */
+    public List<ProcessorStatistics> getProcessorStatistics() {
+        ValidationMetrics currentMetrics = metrics;
+        if (currentMetrics == null) {
+            return Collections.emptyList();
+        }
+        return currentMetrics.getProcessorStatistics();
+    }
+
+    /**
+     * Returns the counters of the verdict caches used by {@link #validateEmail}, {@link #validateDomain} and
+     * {@link #validateUrl}. The same statistics are published by the metrics MBean.
+     *
+     * @return a snapshot of the statistics of each verdict cache by processor name, empty when the caches are disabled
+     */
+    public Map<String, CacheStatistics> getVerdictCacheStatistics() {
+        return ValidationMetrics.verdictCacheStatistics(verdictCaches);
+    }
+
+    public boolean isFastCreditCardCheck() {
+        return fastCreditCardCheck;
+    }
+
+    public void setFastCreditCardCheck(boolean fastCreditCardCheck) {
+        this.fastCreditCardCheck = fastCreditCardCheck;
+    }
+
+    public List<String> getCustomExceptionClassNames() {
+        return customExceptionClassNames;
+    }
+
+    public void setCustomExceptionClassNames(List<String> customExceptionClassNames) {
+        this.customExceptionClassNames = customExceptionClassNames;
+    }
+
+    public boolean isStacklessExceptions() {
+        return stacklessExceptions;
+    }
+
+    public void setStacklessExceptions(boolean stacklessExceptions) {
+        this.stacklessExceptions = stacklessExceptions;
+    }
+
+    public int getVerdictCacheMaxSize() {
+        return verdictCacheMaxSize;
+    }
+
+    public void setVerdictCacheMaxSize(int verdictCacheMaxSize) {
+        this.verdictCacheMaxSize = verdictCacheMaxSize;
+    }
+
+    public int getVerdictCacheTtl() {
+        return verdictCacheTtl;
+    }
+
+    public void setVerdictCacheTtl(int verdictCacheTtl) {
+        this.verdictCacheTtl = verdictCacheTtl;
+    }
+
+    public String getTopLevelDomainsFile() {
+        return topLevelDomainsFile;
+    }
+
+    public void setTopLevelDomainsFile(String topLevelDomainsFile) {
+        this.topLevelDomainsFile = topLevelDomainsFile;
+    }
+
+    public int getTopLevelDomainsRefreshInterval() {
+        return topLevelDomainsRefreshInterval;
+    }
+
+    public void setTopLevelDomainsRefreshInterval(int topLevelDomainsRefreshInterval) {
+        this.topLevelDomainsRefreshInterval = topLevelDomainsRefreshInterval;
+    }
+
+    public Map<String, String> getMembershipLists() {
+        return membershipLists;
+    }
+
+    public void setMembershipLists(Map<String, String> membershipLists) {
+        this.membershipLists = membershipLists;
+    }
+
+    public int getMembershipRefreshInterval() {
+        return membershipRefreshInterval;
+    }
+
+    public void setMembershipRefreshInterval(int membershipRefreshInterval) {
+        this.membershipRefreshInterval = membershipRefreshInterval;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public String getMetricsName() {
+        return metricsName;
+    }
+
+    public void setMetricsName(String metricsName) {
+        this.metricsName = metricsName;
+    }
+
+    /**
+     * If the specified <code>value</code> is not in the named membership list throw an exception, or, when
+     * <code>denylist</code> is true, if it is in the list. The lists are declared on the config with
+     * <code>membershipLists</code>; a lookup reads the memory-mapped file of the list and takes constant time however
+     * large the list is. A <code>null</code> value is never valid.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-membership}
+     *
+     * @param value                    Value to look up
+     * @param list                     Name of the membership list
+     * @param denylist                 Whether the values of the list are the invalid ones
+     * @param verdictVariable          Name of the flow variable that receives the outcome instead of throwing an exception
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @throws Exception if not valid
+     */
+    @Processor
+    public void validateMembership(String value, String list, @Optional @Default("false") boolean denylist,
+                                   @Optional String verdictVariable, @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        MembershipList membership = memberships.get(list);
+        if (membership == null) {
+            throw new IllegalArgumentException("Unknown membership list '" + list + "'");
+        }
+
+        long startTime = startTime();
+        boolean valid = value != null && membership.contains(value) != denylist;
+
+        verdict(valid, startTime, muleMessage, verdictVariable, customExceptionClassName, "validate-membership", value);
+    }
+
+    /**
+     * Applies several rules to values of the current message in a single processor. Each rule has the form
+     * <code>expression =&gt; rule</code>, such as <code>payload.email =&gt; email</code> or
+     * <code>payload.quantity =&gt; long(1,100)</code>, where the expression is written without the <code>#[ ]</code>
+     * delimiters. The rules are compiled once and the compiled plan is reused by every message with the same rules.
+     * <p/>
+     * If any rule fails an exception is thrown whose value is the {@link ValidationResult}, unless
+     * <code>resultVariable</code> is set, in which case the result is stored in that flow variable instead.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-all}
+     *
+     * @param rules                    Rules to apply
+     * @param failFast                 Stop at the first failing rule instead of collecting all the failures
+     * @param resultVariable           Name of the flow variable that receives the {@link ValidationResult} instead of throwing an exception
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @throws Exception if not valid
+     */
+    @Processor
+    public void validateAll(List<String> rules, @Optional @Default("true") boolean failFast, @Optional String resultVariable,
+                            @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        RulePlan plan = rulePlanCache.get(rules, rulePlanFactory);
+        ValidationResult result = plan.evaluate(muleMessage, failFast);
+        record("validate-all", result.isValid(), startTime);
+
+        if (resultVariable != null) {
+            muleMessage.setInvocationProperty(resultVariable, result);
+        } else if (!result.isValid()) {
+            throw buildException(customExceptionClassName, "validate-all", result);
+        }
+    }
+
+    /**
+     * Applies several rules to the fields of an object, such as a map or a Java bean, in a single processor. Each rule
+     * has the form <code>path =&gt; rule</code>, such as <code>customer.email =&gt; email</code> or
+     * <code>quantity =&gt; long(1,100)</code>, where the path is a dot-separated list of map keys or bean properties
+     * and the rule is one of the definitions supported by {@link #validateAll}.
+     * <p/>
+     * Unlike {@link #validateAll} no expression is evaluated: the accessor of each property is looked up the first
+     * time an object of a given class is seen and reused afterwards. The outcome is handled as by
+     * {@link #validateAll}.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-fields}
+     *
+     * @param object                   Object to validate
+     * @param rules                    Rules to apply
+     * @param failFast                 Stop at the first failing rule instead of collecting all the failures
+     * @param resultVariable           Name of the flow variable that receives the {@link ValidationResult} instead of throwing an exception
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @throws Exception if not valid
+     */
+    @Processor
+    public void validateFields(@Optional @Default("#[payload]") Object object, List<String> rules,
+                               @Optional @Default("true") boolean failFast, @Optional String resultVariable,
+                               @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        long startTime = startTime();
+        FieldPlan plan = fieldPlanCache.get(rules, fieldPlanFactory);
+        ValidationResult result = plan.validate(object, failFast);
+        record("validate-fields", result.isValid(), startTime);
+
+        if (resultVariable != null) {
+            muleMessage.setInvocationProperty(resultVariable, result);
+        } else if (!result.isValid()) {
+            throw buildException(customExceptionClassName, "validate-fields", result);
+        }
+    }
+
+    /**
+     * Starts applying several rules to values of the current message without waiting for the outcome, so that the flow
+     * can carry on with other work. The rules are those of {@link #validateAll}. The values are read from the message
+     * on the flow thread, then the rules are applied on the threads of the module and a {@link Future} of the
+     * {@link ValidationResult} is stored in <code>futureVariable</code>, to be joined by {@link #awaitValidation}.
+     * <p/>
+     * When all the threads are busy and <code>asyncQueueSize</code> validations are already waiting, or when the module
+     * is stopping, the rules are applied on the flow thread before this processor returns.
+     * <p/>
+     * The pending validation is not serializable: it must be awaited before the message crosses a boundary that
+     * serializes it, such as a persistent or clustered queue, or is stored in a persistent object store.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-all-async}
      *
-     * @param classes List of classes to which to add all found super classes and interfaces.
-     * @param clazz   The class to start the search with.
+     * @param rules          Rules to apply
+     * @param failFast       Stop at the first failing rule instead of collecting all the failures
+     * @param futureVariable Name of the flow variable that receives the pending validation
+     * @param muleMessage    The current message
+     * @throws Exception if the rules cannot be compiled
      */
-    private void computeClassHierarchy(Class clazz, List classes) {
-        for (Class current = clazz; (current != null); current = current.getSuperclass()) {
-            if (classes.contains(current)) {
-                return;
+    @Processor
+    public void validateAllAsync(List<String> rules, @Optional @Default("true") final boolean failFast,
+                                 @Optional @Default("pendingValidation") String futureVariable, MuleMessage muleMessage) throws Exception {
+        final RulePlan plan = rulePlanCache.get(rules, rulePlanFactory);
+        final Object[] values = plan.extract(muleMessage);
+        final String flowName = flowName();
+
+        FutureTask<ValidationResult> task = new FutureTask<ValidationResult>(new Callable<ValidationResult>() {
+            @Override
+            public ValidationResult call() {
+                long startTime = startTime();
+                ValidationResult result = plan.apply(values, failFast);
+                record("validate-all-async", flowName, result.isValid(), startTime);
+                return result;
             }
-            classes.add(current);
-            for (Class currentInterface : current.getInterfaces()) {
-                computeClassHierarchy(currentInterface, classes);
+        });
+
+        ThreadPoolExecutor executor = asyncExecutor;
+        if (executor == null) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+        muleMessage.setInvocationProperty(futureVariable, task);
+    }
+
+    /**
+     * Waits for a validation started by {@link #validateAllAsync} and handles its outcome as {@link #validateAll}
+     * does: an exception is thrown whose value is the {@link ValidationResult} if any rule failed, unless
+     * <code>resultVariable</code> is set. A validation that is not complete within the timeout, or while the flow
+     * thread is interrupted, is cancelled. A validation cancelled because the module stopped before it started raises an
+     * {@link IllegalStateException}.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:await-validation}
+     *
+     * @param futureVariable           Name of the flow variable holding the pending validation
+     * @param timeout                  Maximum number of milliseconds to wait for the outcome
+     * @param resultVariable           Name of the flow variable that receives the {@link ValidationResult} instead of throwing an exception
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @throws Exception if not valid, if the validation is not complete within the timeout, if it was cancelled or if it
+     *                   failed
+     */
+    @Processor
+    public void awaitValidation(@Optional @Default("pendingValidation") String futureVariable, @Optional @Default("30000") long timeout,
+                                @Optional String resultVariable,
+                                @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        Object pending = muleMessage.getInvocationProperty(futureVariable);
+        if (!(pending instanceof Future)) {
+            throw new IllegalStateException("Flow variable '" + futureVariable + "' does not hold a pending validation");
+        }
+
+        Future<?> future = (Future<?>) pending;
+        ValidationResult result;
+        try {
+            result = (ValidationResult) future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (CancellationException e) {
+            throw new IllegalStateException("The validation held by flow variable '" + futureVariable + "' was cancelled because the module stopped", e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+
+        if (resultVariable != null) {
+            muleMessage.setInvocationProperty(resultVariable, result);
+        } else if (!result.isValid()) {
+            throw buildException(customExceptionClassName, "await-validation", result);
+        }
+    }
+
+    /**
+     * Applies a rule to every element of a collection, such as the rows of a CSV file or of a database query. When
+     * <code>field</code> is set the elements are expected to be maps and the rule is applied to the value of that
+     * key. The rule is one of the definitions supported by {@link #validateAll}, for example <code>email</code> or
+     * <code>long(0,)</code>.
+     * <p/>
+     * Large collections are split into chunks of <code>collectionChunkSize</code> elements that are validated
+     * concurrently. The outcome is a {@link ValidationResult} holding the index of every invalid element; a single
+     * exception is thrown for the whole collection unless <code>resultVariable</code> is set.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-collection}
+     *
+     * @param collection               Collection to validate
+     * @param rule                     Rule to apply to every element
+     * @param field                    Key of the value to validate when the elements are maps
+     * @param resultVariable           Name of the flow variable that receives the {@link ValidationResult} instead of throwing an exception
+     * @param customExceptionClassName Class name of the exception to throw
+     * @param muleMessage              The current message
+     * @throws Exception if not valid
+     */
+    @Processor
+    public void validateCollection(@Optional @Default("#[payload]") Object collection, String rule, @Optional String field, @Optional String resultVariable,
+                                   @Optional @Default("org.mule.modules.validation.InvalidException") String customExceptionClassName, MuleMessage muleMessage) throws Exception {
+        if (!(collection instanceof Collection)) {
+            throw buildException(customExceptionClassName, "validate-collection", collection);
+        }
+
+        long startTime = startTime();
+        Rule compiledRule = preparedRules.get(rule);
+        if (compiledRule == null) {
+            compiledRule = ruleCache.get(rule, ruleFactory);
+        }
+        ValidationResult result = collectionValidator.validate((Collection<?>) collection, compiledRule, rule, field);
+        record("validate-collection", result.isValid(), startTime);
+
+        if (resultVariable != null) {
+            muleMessage.setInvocationProperty(resultVariable, result);
+        } else if (!result.isValid()) {
+            throw buildException(customExceptionClassName, "validate-collection", result);
+        }
+    }
+
+    /**
+     * Validates a stream of line-delimited records, such as a CSV file, without loading it in memory. Each rule has
+     * the form <code>column =&gt; rule</code>, where the column is the zero-based position of a field, or
+     * <code>*</code> for the whole record, and the rule is one of the definitions supported by {@link #validateAll}.
+     * <p/>
+     * The processor returns a stream of the valid records, which are read and validated as the stream is consumed and
+     * copied unchanged, line terminators included. Every line terminator ends a record, so quoted fields cannot span
+     * several lines, and the encoding must write line terminators as single bytes. Invalid records are left out of the stream and reported, with their line numbers, in the
+     * {@link RecordRejections} stored in the <code>rejectionsVariable</code> flow variable. The rejections are complete
+     * once the returned stream has been read to the end.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-validation.xml.sample validation:validate-records}
+     *
+     * @param input              Stream of records
+     * @param rules              Rules to apply to every record
+     * @param delimiter          Field delimiter
+     * @param headerLines        Number of leading lines passed through without being validated
+     * @param encoding           Encoding of the stream
+     * @param maxRejects         Maximum number of rejected records retained in the rejections
+     * @param rejectionsVariable Name of the flow variable that receives the {@link RecordRejections}
+     * @param muleMessage        The current message
+     * @return a stream of the valid records
+     * @throws Exception if the rules cannot be compiled
+     */
+    @Processor
+    public InputStream validateRecords(@Optional @Default("#[payload]") Object input, List<String> rules,
+                                       @Optional @Default(",") String delimiter,
+                                       @Optional @Default("0") int headerLines,
+                                       @Optional @Default("UTF-8") String encoding,
+                                       @Optional @Default("1000") int maxRejects,
+                                       @Optional @Default("rejectedRecords") String rejectionsVariable,
+                                       MuleMessage muleMessage) throws Exception {
+        if (!(input instanceof InputStream)) {
+            throw new IllegalArgumentException("validate-records requires an InputStream but got " + (input == null ? "null" : input.getClass().getName()));
+        }
+        if (delimiter == null || delimiter.length() != 1) {
+            throw new IllegalArgumentException("The delimiter must be a single character");
+        }
+
+        RecordPlan plan = recordPlanCache.get(rules, recordPlanFactory);
+        RecordRejections rejections = new RecordRejections(maxRejects);
+        muleMessage.setInvocationProperty(rejectionsVariable, rejections);
+
+        return new RecordFilterInputStream((InputStream) input, Charset.forName(encoding), plan, delimiter.charAt(0), headerLines, rejections);
+    }
+
+    /**
+     * Publishes the outcome of a validation. When <code>verdictVariable</code> is set the outcome is stored as a
+     * {@link Boolean} flow variable and no exception is ever built; otherwise an invalid value raises the configured
+     * exception.
+     */
+    private void verdict(boolean valid, long startTime, MuleMessage muleMessage, String verdictVariable, String customExceptionClassName, String processorName, Object value) throws Exception {
+        record(processorName, valid, startTime);
+
+        if (verdictVariable != null) {
+            muleMessage.setInvocationProperty(verdictVariable, valid);
+        } else if (!valid) {
+            throw buildException(customExceptionClassName, processorName, value);
+        }
+    }
+
+    /**
+     * Publishes the outcome of a conversion, where a <code>null</code> value means that the input was not valid. The
+     * converted value replaces the payload unless <code>targetVariable</code> is set.
+     */
+    private Object converted(Object value, long startTime, MuleMessage muleMessage, String targetVariable, String customExceptionClassName, String processorName, Object input) throws Exception {
+        record(processorName, value != null, startTime);
+
+        if (value == null) {
+            throw buildException(customExceptionClassName, processorName, input);
+        }
+        if (targetVariable != null) {
+            muleMessage.setInvocationProperty(targetVariable, value);
+            return muleMessage.getPayload();
+        }
+        return value;
+    }
+
+    private boolean isValidEmail(String emailAddress, EmailStrictness strictness) {
+        TopLevelDomains domains = topLevelDomains;
+        if (strictness == null) {
+            if (domains == null) {
+                return EmailValidator.getInstance().isValid(emailAddress);
             }
+            strictness = EmailStrictness.TOP_LEVEL_DOMAIN;
+        }
+        return EmailAddresses.isValid(emailAddress, strictness, domains);
+    }
+
+    /**
+     * @return the version of the top-level domains list, part of the remembered verdicts of checks that depend on it so
+     *         that a new list is not hidden by verdicts given with the previous one
+     */
+    private long topLevelDomainsVersion() {
+        TopLevelDomains domains = topLevelDomains;
+        return domains == null ? 0 : domains.version();
+    }
+
+    /**
+     * @return the start time of a check when metrics are enabled; the clock is not read otherwise
+     */
+    private long startTime() {
+        return metrics == null ? 0L : System.nanoTime();
+    }
+
+    /**
+     * Records the outcome and the latency of a check started at <code>startTime</code>, if metrics are enabled.
+     */
+    private void record(String processorName, boolean valid, long startTime) {
+        ValidationMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.record(processorName, flowName(), valid, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Records a check that ran outside of the flow thread, on behalf of the named flow.
+     */
+    private void record(String processorName, String flowName, boolean valid, long startTime) {
+        ValidationMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.record(processorName, flowName, valid, System.nanoTime() - startTime);
+        }
+    }
+
+    private static String flowName() {
+        MuleEvent event = RequestContext.getEvent();
+        FlowConstruct flowConstruct = event == null ? null : event.getFlowConstruct();
+        return flowConstruct == null ? null : flowConstruct.getName();
+    }
+
+    private Exception buildException(String customExceptionClassName, String processorName, Object value) throws ClassNotFoundException, IllegalAccessException, InstantiationException {
+        return exceptionFactory.create(customExceptionClassName, processorName, value, stacklessExceptions);
+    }
+
+    private static final BoundedCache.ValueFactory<RegexKey, PatternSet> REGEX_FACTORY = new BoundedCache.ValueFactory<RegexKey, PatternSet>() {
+        @Override
+        PatternSet create(RegexKey key) {
+            return PatternSet.compile(key.regexs, key.caseSensitive, key.combined);
+        }
+
+        @Override
+        RegexKey retain(RegexKey key) {
+            return new RegexKey(new ArrayList<String>(key.regexs), key.caseSensitive, key.combined);
+        }
+    };
+
+    private final BoundedCache.ValueFactory<List<String>, RulePlan> rulePlanFactory = new BoundedCache.ValueFactory<List<String>, RulePlan>() {
+        @Override
+        RulePlan create(List<String> rules) {
+            return RulePlan.compile(rules, preparedRules, topLevelDomains, regexStepLimit);
+        }
+
+        @Override
+        List<String> retain(List<String> rules) {
+            return new ArrayList<String>(rules);
+        }
+    };
+
+    private final BoundedCache.ValueFactory<List<String>, FieldPlan> fieldPlanFactory = new BoundedCache.ValueFactory<List<String>, FieldPlan>() {
+        @Override
+        FieldPlan create(List<String> rules) {
+            return FieldPlan.compile(rules, preparedRules, topLevelDomains, regexStepLimit);
+        }
+
+        @Override
+        List<String> retain(List<String> rules) {
+            return new ArrayList<String>(rules);
+        }
+    };
+
+    private final BoundedCache.ValueFactory<String, Rule> ruleFactory = new BoundedCache.ValueFactory<String, Rule>() {
+        @Override
+        Rule create(String definition) {
+            return Rules.compile(definition, topLevelDomains, regexStepLimit);
+        }
+    };
+
+    private final BoundedCache.ValueFactory<List<String>, RecordPlan> recordPlanFactory = new BoundedCache.ValueFactory<List<String>, RecordPlan>() {
+        @Override
+        RecordPlan create(List<String> rules) {
+            return RecordPlan.compile(rules, preparedRules, topLevelDomains, regexStepLimit);
+        }
+
+        @Override
+        List<String> retain(List<String> rules) {
+            return new ArrayList<String>(rules);
+        }
+    };
+
+    /**
+     * Cache key for a set of regular expressions. Lookups wrap the caller's list as is; the list is only copied when
+     * the key is retained by the cache, so a hit does not copy anything.
+     */
+    private static final class RegexKey {
+        private final List<String> regexs;
+        private final boolean caseSensitive;
+        private final boolean combined;
+        private final int hash;
+
+        private RegexKey(List<String> regexs, boolean caseSensitive, boolean combined) {
+            this.regexs = regexs;
+            this.caseSensitive = caseSensitive;
+            this.combined = combined;
+            this.hash = 31 * regexs.hashCode() + (caseSensitive ? 1 : 0) + (combined ? 2 : 0);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof RegexKey)) {
+                return false;
+            }
+            RegexKey key = (RegexKey) other;
+            return hash == key.hash && caseSensitive == key.caseSensitive && combined == key.combined && regexs.equals(key.regexs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
         }
     }
 }
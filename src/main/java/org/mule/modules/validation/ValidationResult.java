@@ -0,0 +1,61 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a processor that applies several checks at once.
+ */
+public final class ValidationResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final ValidationResult VALID = new ValidationResult(Collections.<ValidationFailure>emptyList());
+
+    private final List<ValidationFailure> failures;
+
+    private ValidationResult(List<ValidationFailure> failures) {
+        this.failures = failures;
+    }
+
+    /**
+     * @return the shared result without failures
+     */
+    public static ValidationResult valid() {
+        return VALID;
+    }
+
+    /**
+     * @param failures the failures; the list is retained and must not be modified afterwards
+     * @return a result holding the specified failures
+     */
+    public static ValidationResult of(List<ValidationFailure> failures) {
+        if (failures == null || failures.isEmpty()) {
+            return VALID;
+        }
+        return new ValidationResult(Collections.unmodifiableList(failures));
+    }
+
+    public boolean isValid() {
+        return failures.isEmpty();
+    }
+
+    public List<ValidationFailure> getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "ValidationResult[valid]" : "ValidationResult" + failures;
+    }
+}
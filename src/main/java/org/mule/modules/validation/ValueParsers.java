@@ -0,0 +1,357 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.text.DateFormat;
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.Format;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses numbers, dates and times with the same rules as the strict commons validators, reusing the formats.
+ * <p/>
+ * {@link Format}s are expensive to create and not thread-safe, so each thread keeps its own formats per value type,
+ * {@link Locale} and pattern. Patterns may be computed by expressions, so a thread only keeps the formats of the
+ * {@value #MAX_PATTERNS} patterns it used most recently. Numbers in the default {@link Locale#US} format without a pattern that are made of ASCII
+ * digits only, with an optional minus sign and, for floating point types, a decimal point, are parsed without any
+ * format at all. Dates and times with the {@link IsoDates#PATTERN} pattern are scanned by {@link IsoDates}.
+ */
+final class ValueParsers {
+    private static final int LONG = 0;
+    private static final int INTEGER = 1;
+    private static final int FLOAT = 2;
+    private static final int DOUBLE = 3;
+    private static final int DATE = 4;
+    private static final int TIME = 5;
+    private static final int TYPES = 6;
+
+    /**
+     * Longest digit sequence handled by the fast path. It cannot overflow a long and is parsed exactly by
+     * {@link NumberFormat}, so both paths always agree.
+     */
+    private static final int MAX_FAST_DIGITS = 18;
+
+    /**
+     * Largest number of patterns whose formats each thread keeps.
+     */
+    private static final int MAX_PATTERNS = 32;
+
+    private static final Locale[] LOCALES = Locale.values();
+
+    private static final ThreadLocal<Formats> FORMATS = new ThreadLocal<Formats>() {
+        @Override
+        protected Formats initialValue() {
+            return new Formats();
+        }
+    };
+
+    private ValueParsers() {
+    }
+
+    /**
+     * @return the parsed value, or <code>null</code> if <code>value</code> is not a valid {@link Long}
+     */
+    static Long parseLong(String value, String pattern, Locale locale) {
+        String trimmed = trim(value);
+        if (trimmed == null) {
+            return null;
+        }
+        if (isFastPath(pattern, locale)) {
+            long parsed = parseDigits(trimmed);
+            if (parsed != Long.MIN_VALUE) {
+                return parsed;
+            }
+        }
+
+        Object parsed = parse(trimmed, FORMATS.get().get(LONG, pattern, locale));
+        return parsed instanceof Long ? (Long) parsed : null;
+    }
+
+    /**
+     * @return the parsed value, or <code>null</code> if <code>value</code> is not a valid {@link Integer}
+     */
+    static Integer parseInteger(String value, String pattern, Locale locale) {
+        String trimmed = trim(value);
+        if (trimmed == null) {
+            return null;
+        }
+        if (isFastPath(pattern, locale)) {
+            long parsed = parseDigits(trimmed);
+            if (parsed != Long.MIN_VALUE) {
+                return parsed < Integer.MIN_VALUE || parsed > Integer.MAX_VALUE ? null : (int) parsed;
+            }
+        }
+
+        Object parsed = parse(trimmed, FORMATS.get().get(INTEGER, pattern, locale));
+        if (parsed == null) {
+            return null;
+        }
+        long longValue = ((Number) parsed).longValue();
+        return longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE ? null : (int) longValue;
+    }
+
+    /**
+     * @return the parsed value, or <code>null</code> if <code>value</code> is not a valid {@link Float}
+     */
+    static Float parseFloat(String value, String pattern, Locale locale) {
+        Double parsed = parseDouble(trim(value), pattern, locale, FLOAT);
+        if (parsed == null) {
+            return null;
+        }
+
+        double magnitude = Math.abs(parsed);
+        if (magnitude != 0 && (magnitude < Float.MIN_VALUE || magnitude > Float.MAX_VALUE)) {
+            return null;
+        }
+        return (float) parsed.doubleValue();
+    }
+
+    /**
+     * @return the parsed value, or <code>null</code> if <code>value</code> is not a valid {@link Double}
+     */
+    static Double parseDouble(String value, String pattern, Locale locale) {
+        return parseDouble(trim(value), pattern, locale, DOUBLE);
+    }
+
+    /**
+     * @return true if <code>value</code> is a valid date in the short date format of the locale, or in the pattern
+     *         if one is specified
+     */
+    static boolean isValidDate(String value, String pattern, Locale locale) {
+        if (IsoDates.PATTERN.equals(pattern)) {
+            return IsoDates.isValidDate(trim(value));
+        }
+        return parseDate(value, pattern, locale) != null;
+    }
+
+    /**
+     * @return true if <code>value</code> is a valid time in the short time format of the locale, or in the pattern
+     *         if one is specified
+     */
+    static boolean isValidTime(String value, String pattern, Locale locale) {
+        if (IsoDates.PATTERN.equals(pattern)) {
+            return IsoDates.isValidTime(trim(value));
+        }
+        return parseTime(value, pattern, locale) != null;
+    }
+
+    /**
+     * @return the parsed date, or <code>null</code> if <code>value</code> is not a valid date in the short date format
+     *         of the locale, or in the pattern if one is specified
+     */
+    static Date parseDate(String value, String pattern, Locale locale) {
+        return parseDateTime(trim(value), pattern, locale, DATE);
+    }
+
+    /**
+     * @return the parsed time, or <code>null</code> if <code>value</code> is not a valid time in the short time format
+     *         of the locale, or in the pattern if one is specified
+     */
+    static Date parseTime(String value, String pattern, Locale locale) {
+        return parseDateTime(trim(value), pattern, locale, TIME);
+    }
+
+    private static Date parseDateTime(String trimmed, String pattern, Locale locale, int type) {
+        if (trimmed == null) {
+            return null;
+        }
+        if (IsoDates.PATTERN.equals(pattern)) {
+            return type == DATE ? IsoDates.parseDate(trimmed) : IsoDates.parseTime(trimmed);
+        }
+        return (Date) parse(trimmed, FORMATS.get().get(type, pattern, locale));
+    }
+
+    private static Double parseDouble(String trimmed, String pattern, Locale locale, int type) {
+        if (trimmed == null) {
+            return null;
+        }
+        if (isFastPath(pattern, locale) && isPlainDecimal(trimmed)) {
+            return Double.parseDouble(trimmed);
+        }
+
+        Object parsed = parse(trimmed, FORMATS.get().get(type, pattern, locale));
+        if (parsed == null) {
+            return null;
+        }
+        return parsed instanceof Double ? (Double) parsed : ((Number) parsed).doubleValue();
+    }
+
+    private static boolean isFastPath(String pattern, Locale locale) {
+        return locale == Locale.US && (pattern == null || pattern.length() == 0);
+    }
+
+    /**
+     * Parses an optional minus sign followed by at most {@link #MAX_FAST_DIGITS} ASCII digits.
+     *
+     * @return the value, or {@link Long#MIN_VALUE} if the value must be parsed by a format, which includes negative
+     *         zero so that its sign is handled by the format
+     */
+    private static long parseDigits(String value) {
+        int length = value.length();
+        boolean negative = value.charAt(0) == '-';
+        int start = negative ? 1 : 0;
+        if (length == start || length - start > MAX_FAST_DIGITS) {
+            return Long.MIN_VALUE;
+        }
+
+        long result = 0;
+        for (int i = start; i < length; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            result = result * 10 + digit;
+        }
+
+        if (negative) {
+            return result == 0 ? Long.MIN_VALUE : -result;
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the value is an optional minus sign followed by digits with at most one decimal point between
+     *         two digits, and no more than {@link #MAX_FAST_DIGITS} digits
+     */
+    private static boolean isPlainDecimal(String value) {
+        int length = value.length();
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int digits = 0;
+        int point = -1;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                if (point >= 0 || i == start || i == length - 1) {
+                    return false;
+                }
+                point = i;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0 && digits <= MAX_FAST_DIGITS;
+    }
+
+    /**
+     * @return the number of patterns whose formats the current thread keeps
+     */
+    static int cachedPatternCount() {
+        return FORMATS.get().patternCount();
+    }
+
+    private static String trim(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.length() == 0 ? null : trimmed;
+    }
+
+    private static Object parse(String value, Format format) {
+        ParsePosition position = new ParsePosition(0);
+        Object parsed = format.parseObject(value, position);
+        if (position.getErrorIndex() > -1 || position.getIndex() < value.length()) {
+            return null;
+        }
+        return parsed;
+    }
+
+    /**
+     * The formats of a single thread. Formats without a pattern are held in an array indexed by type and locale;
+     * formats with a pattern in such an array per pattern, in a map that drops the least recently used pattern.
+     */
+    private static final class Formats {
+        private final Format[] defaults = new Format[TYPES * LOCALES.length];
+        private final PatternFormats patterns = new PatternFormats();
+
+        Format get(int type, String pattern, Locale locale) {
+            int index = type * LOCALES.length + locale.ordinal();
+            if (pattern == null || pattern.length() == 0) {
+                Format format = defaults[index];
+                if (format == null) {
+                    format = create(type, null, locale.getJavaLocale());
+                    defaults[index] = format;
+                }
+                return format;
+            }
+
+            Format[] formats = patterns.get(pattern);
+            if (formats == null) {
+                formats = new Format[TYPES * LOCALES.length];
+                patterns.put(pattern, formats);
+            }
+            Format format = formats[index];
+            if (format == null) {
+                format = create(type, pattern, locale.getJavaLocale());
+                formats[index] = format;
+            }
+            return format;
+        }
+
+        int patternCount() {
+            return patterns.size();
+        }
+
+        private static Format create(int type, String pattern, java.util.Locale locale) {
+            if (type == DATE || type == TIME) {
+                DateFormat format;
+                if (pattern != null) {
+                    format = new SimpleDateFormat(pattern, new DateFormatSymbols(locale));
+                } else if (type == DATE) {
+                    format = DateFormat.getDateInstance(DateFormat.SHORT, locale);
+                } else {
+                    format = DateFormat.getTimeInstance(DateFormat.SHORT, locale);
+                }
+                format.setLenient(false);
+                return format;
+            }
+
+            boolean integer = type == LONG || type == INTEGER;
+            NumberFormat format;
+            if (pattern == null) {
+                format = NumberFormat.getInstance(locale);
+                if (integer) {
+                    format.setParseIntegerOnly(true);
+                }
+            } else {
+                DecimalFormat decimalFormat = new DecimalFormat(pattern, new DecimalFormatSymbols(locale));
+                int multiplier = decimalFormat.getMultiplier();
+                if (integer || (decimalFormat.getMaximumFractionDigits() == 0 && multiplier != 100 && multiplier != 1000)) {
+                    decimalFormat.setParseIntegerOnly(true);
+                }
+                format = decimalFormat;
+            }
+            return format;
+        }
+    }
+
+    private static final class PatternFormats extends LinkedHashMap<String, Format[]> {
+        private static final long serialVersionUID = 1L;
+
+        private PatternFormats() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Format[]> eldest) {
+            return size() > MAX_PATTERNS;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the outcome of expensive validations of values that are seen repeatedly.
+ * <p/>
+ * Values are never stored: each entry holds a 64 bit hash of the value, salted with a secret chosen when the cache is
+ * created, and the verdict. Two values could in theory share a hash, but with 64 bits the odds are negligible for any
+ * realistic number of distinct values.
+ * <p/>
+ * The cache is a set-associative table: a hash can only be stored in one of {@link #WAYS} slots, so a lookup checks at
+ * most four entries and the cache never grows beyond its capacity. When all the slots of a set are taken, the oldest
+ * entry of the set is replaced. Entries expire after the time to live, if one is set. The table is split into
+ * independently locked segments.
+ */
+final class VerdictCache {
+    static final int UNKNOWN = -1;
+    static final int INVALID = 0;
+    static final int VALID = 1;
+
+    private static final int WAYS = 4;
+    private static final int MAX_SEGMENTS = 16;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long secret = new Random().nextLong();
+    private final int segmentShift;
+    private final Segment[] segments;
+    private final StripedCounter hits = new StripedCounter();
+    private final StripedCounter misses = new StripedCounter();
+    private final StripedCounter evictions = new StripedCounter();
+
+    /**
+     * @param maxSize Maximum number of verdicts to keep, rounded down to a power of two of at least {@link #WAYS}
+     * @param ttl     Time after which a verdict expires, or zero to keep verdicts until they are replaced
+     * @param unit    Unit of <code>ttl</code>
+     */
+    VerdictCache(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maximum size of a verdict cache must be greater than zero");
+        }
+        if (ttl < 0) {
+            throw new IllegalArgumentException("The time to live of a verdict cache cannot be negative");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+
+        int capacity = Math.max(WAYS, Integer.highestOneBit(maxSize));
+        int segmentCount = Math.min(MAX_SEGMENTS, capacity / WAYS);
+        segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(capacity / segmentCount / WAYS);
+        }
+    }
+
+    /**
+     * Returns the cached verdict for <code>value</code>, applying <code>rule</code> and caching its verdict on a miss.
+     * <code>null</code> values are never cached.
+     *
+     * @param value   Value to validate
+     * @param options Fingerprint of the options of the validation, or zero if it has none
+     * @param rule    Rule to apply on a miss
+     * @return true if the value is valid
+     */
+    boolean isValid(String value, long options, Rule rule) {
+        if (value == null) {
+            return rule.isValid(null);
+        }
+
+        long key = key(value, options);
+        int verdict = get(key);
+        if (verdict == UNKNOWN) {
+            return put(key, rule.isValid(value));
+        }
+        return verdict == VALID;
+    }
+
+    /**
+     * @return the key identifying <code>value</code> validated with the specified options
+     */
+    long key(String value, long options) {
+        long key = hash(value, secret ^ options * GOLDEN_GAMMA);
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * @return {@link #VALID}, {@link #INVALID} or {@link #UNKNOWN} if the key is not cached or has expired
+     */
+    int get(long key) {
+        int verdict = segmentFor(key).get(key, ttlNanos == 0 ? 0 : System.nanoTime(), ttlNanos != 0);
+        if (verdict == UNKNOWN) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return verdict;
+    }
+
+    /**
+     * Caches a verdict.
+     *
+     * @return the verdict
+     */
+    boolean put(long key, boolean valid) {
+        if (segmentFor(key).put(key, valid, ttlNanos == 0 ? 0 : System.nanoTime(), ttlNanos)) {
+            evictions.increment();
+        }
+        return valid;
+    }
+
+    CacheStatistics getStatistics() {
+        long now = ttlNanos == 0 ? 0 : System.nanoTime();
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size(now, ttlNanos != 0);
+        }
+        return new CacheStatistics(maxSize, size, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Hashes the characters of a value with FNV-1a, followed by the finalizer of MurmurHash3 so that every bit of the
+     * hash depends on every character.
+     *
+     * @param value Value to hash
+     * @param seed  Initial state of the hash
+     * @return a 64 bit hash
+     */
+    static long hash(CharSequence value, long seed) {
+        long hash = seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= value.length();
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[segmentShift == 64 ? 0 : (int) (key >>> segmentShift)];
+    }
+
+    /**
+     * A segment of the table. The low bits of a key select its set; each set is {@link #WAYS} consecutive slots. A
+     * slot holds the key, the verdict and a stamp: the expiry time when entries expire, otherwise an insertion
+     * counter. In both cases the lowest stamp of a set belongs to its oldest entry.
+     */
+    private static final class Segment {
+        private final long[] keys;
+        private final long[] stamps;
+        private final boolean[] verdicts;
+        private final int setMask;
+        private long insertions;
+
+        private Segment(int sets) {
+            keys = new long[sets * WAYS];
+            stamps = new long[sets * WAYS];
+            verdicts = new boolean[sets * WAYS];
+            setMask = sets - 1;
+        }
+
+        synchronized int get(long key, long now, boolean expiring) {
+            int start = ((int) key & setMask) * WAYS;
+            for (int i = start; i < start + WAYS; i++) {
+                if (keys[i] == key) {
+                    if (expiring && now - stamps[i] >= 0) {
+                        keys[i] = 0;
+                        return UNKNOWN;
+                    }
+                    return verdicts[i] ? VALID : INVALID;
+                }
+            }
+            return UNKNOWN;
+        }
+
+        /**
+         * @return true if a live entry was replaced to make room for the verdict
+         */
+        synchronized boolean put(long key, boolean verdict, long now, long ttlNanos) {
+            boolean expiring = ttlNanos != 0;
+            int start = ((int) key & setMask) * WAYS;
+            int slot = -1;
+            for (int i = start; i < start + WAYS; i++) {
+                if (keys[i] == key) {
+                    slot = i;
+                    break;
+                }
+                if (slot < 0 && (keys[i] == 0 || (expiring && now - stamps[i] >= 0))) {
+                    slot = i;
+                }
+            }
+
+            boolean evicted = false;
+            if (slot < 0) {
+                slot = start;
+                for (int i = start + 1; i < start + WAYS; i++) {
+                    if (stamps[i] - stamps[slot] < 0) {
+                        slot = i;
+                    }
+                }
+                evicted = true;
+            }
+
+            keys[slot] = key;
+            verdicts[slot] = verdict;
+            stamps[slot] = expiring ? now + ttlNanos : ++insertions;
+            return evicted;
+        }
+
+        synchronized int size(long now, boolean expiring) {
+            int size = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0 && !(expiring && now - stamps[i] >= 0)) {
+                    size++;
+                }
+            }
+            return size;
+        }
+    }
+}
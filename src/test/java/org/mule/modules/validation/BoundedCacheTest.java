@@ -0,0 +1,150 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BoundedCacheTest
+{
+    @Test
+    public void testHitsAndMisses() throws Exception
+    {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10);
+        CountingFactory factory = new CountingFactory();
+
+        String first = cache.get("a", factory);
+        assertSame(first, cache.get("a", factory));
+        cache.get("b", factory);
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(2, statistics.getMissCount());
+        assertEquals(0, statistics.getEvictionCount());
+        assertEquals(2, statistics.getSize());
+        assertEquals(10, statistics.getMaxSize());
+        assertEquals(2, factory.created.get());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception
+    {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(3);
+        CountingFactory factory = new CountingFactory();
+
+        cache.get("a", factory);
+        cache.get("b", factory);
+        cache.get("c", factory);
+        cache.get("a", factory);
+        cache.get("d", factory);
+
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+        assertEquals(3, cache.size());
+
+        int created = factory.created.get();
+        cache.get("a", factory);
+        assertEquals(created, factory.created.get());
+        cache.get("b", factory);
+        assertEquals(created + 1, factory.created.get());
+    }
+
+    @Test
+    public void testSizeNeverExceedsMaximum() throws Exception
+    {
+        for (int maxSize : new int[] {1, 17, 100, 255, 1000})
+        {
+            BoundedCache<Integer, String> cache = new BoundedCache<Integer, String>(maxSize);
+            IntegerFactory factory = new IntegerFactory();
+            for (int i = 0; i < maxSize * 20; i++)
+            {
+                cache.get(i, factory);
+            }
+
+            CacheStatistics statistics = cache.getStatistics();
+            assertEquals(maxSize, statistics.getSize());
+            assertEquals(maxSize * 20 - maxSize, statistics.getEvictionCount());
+            assertEquals(maxSize * 20, statistics.getMissCount());
+        }
+    }
+
+    @Test
+    public void testSmallCacheIsNotEvictedBeforeItIsFull() throws Exception
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<Integer, String>(20);
+        IntegerFactory factory = new IntegerFactory();
+        for (int i = 0; i < 20; i++)
+        {
+            cache.get(i * 16, factory);
+        }
+
+        assertEquals(20, cache.size());
+        assertEquals(0, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testZeroSizeNeverRetains() throws Exception
+    {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(0);
+        CountingFactory factory = new CountingFactory();
+
+        cache.get("a", factory);
+        cache.get("a", factory);
+
+        assertEquals(2, factory.created.get());
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getStatistics().getMissCount());
+    }
+
+    @Test
+    public void testClear() throws Exception
+    {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10);
+        CountingFactory factory = new CountingFactory();
+
+        cache.get("a", factory);
+        cache.clear();
+        cache.get("a", factory);
+
+        assertEquals(2, factory.created.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSize()
+    {
+        new BoundedCache<String, String>(-1);
+    }
+
+    private static final class CountingFactory extends BoundedCache.ValueFactory<String, String>
+    {
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        String create(String key)
+        {
+            created.incrementAndGet();
+            return new String(key);
+        }
+    }
+
+    private static final class IntegerFactory extends BoundedCache.ValueFactory<Integer, String>
+    {
+        @Override
+        String create(Integer key)
+        {
+            return key.toString();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.mule.api.MuleMessage;
+import org.mule.construct.Flow;
+import org.mule.tck.AbstractMuleTestCase;
+import org.mule.tck.FunctionalTestCase;
+
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Runs flows against a config that turns on the optional features of the module, so that the flows of
+ * {@link ValidationModuleTest} keep covering the default config.
+ */
+public class ConfigOptionsTest extends FunctionalTestCase
+{
+    @Override
+    protected String getConfigResources()
+    {
+        return "mule-options-config.xml";
+    }
+
+    @Test
+    public void testVerdictCache() throws Exception
+    {
+        long emailHits = verdictCacheHits("validate-email");
+        long urlHits = verdictCacheHits("validate-url");
+
+        MuleMessage message = runFlow("testVerdictCache");
+
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("firstValid"));
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("secondValid"));
+        assertEquals(Boolean.FALSE, message.getInvocationProperty("invalidValid"));
+        assertEquals(Boolean.FALSE, message.getInvocationProperty("invalidAgainValid"));
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("domainValid"));
+        assertEquals(Boolean.FALSE, message.getInvocationProperty("unknownDomainValid"));
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("urlValid"));
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("urlAgainValid"));
+        assertEquals(emailHits + 2, verdictCacheHits("validate-email"));
+        assertEquals(urlHits + 1, verdictCacheHits("validate-url"));
+    }
+
+    @Test(timeout = 10000)
+    public void testRegexStepLimit() throws Exception
+    {
+        MuleMessage message = runFlow("testRegexStepLimit");
+
+        assertEquals(Boolean.FALSE, message.getInvocationProperty("regexValid"));
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("zipValid"));
+
+        ValidationResult result = message.getInvocationProperty("ruleResult");
+        assertEquals(1, result.getFailures().size());
+        assertEquals(0, result.getFailures().get(0).getIndex());
+    }
+
+    @Test
+    public void testPrecompiledRules() throws Exception
+    {
+        MuleMessage message = runFlow("testPrecompiledRules");
+
+        ValidationResult result = message.getInvocationProperty("result");
+        assertEquals(2, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertEquals(3, result.getFailures().get(1).getIndex());
+
+        ValidationResult collectionResult = message.getInvocationProperty("collectionResult");
+        assertEquals(2, collectionResult.getFailures().size());
+        assertEquals(1, collectionResult.getFailures().get(0).getIndex());
+        assertEquals(2, collectionResult.getFailures().get(1).getIndex());
+    }
+
+    @Test
+    public void testCustomException() throws Exception
+    {
+        try
+        {
+            runFlow("testCustomException");
+            fail("the domain is not valid");
+        }
+        catch (Exception e)
+        {
+            assertTrue(e.getCause() instanceof InvalidException);
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception
+    {
+        long isbn10Passes = metric("validate-isbn10", "passCount");
+        long isbn13Failures = metric("validate-isbn13", "failureCount");
+
+        runFlow("testMetrics");
+
+        assertEquals(isbn10Passes + 1, metric("validate-isbn10", "passCount"));
+        assertEquals(isbn13Failures + 1, metric("validate-isbn13", "failureCount"));
+    }
+
+    @Test
+    public void testMetricsDisabledByDefault() throws Exception
+    {
+        ValidationModule module = new ValidationModule();
+        module.start();
+        assertTrue(module.getProcessorStatistics().isEmpty());
+        module.stop();
+    }
+
+    /**
+     * Read a counter of a processor, across all flows, from the metrics MBean
+     *
+     * @param processorName Name of the processor
+     * @param counter       Name of the counter
+     */
+    protected long metric(String processorName, String counter) throws Exception
+    {
+        CompositeData[] statistics = (CompositeData[]) ManagementFactory.getPlatformMBeanServer().getAttribute(metricsName(), "ProcessorStatistics");
+        for (CompositeData processor : statistics)
+        {
+            if (processorName.equals(processor.get("processorName")) && processor.get("flowName") == null)
+            {
+                return (Long) processor.get(counter);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Read the number of hits of a verdict cache from the metrics MBean
+     *
+     * @param processorName Name of the processor owning the cache
+     */
+    protected long verdictCacheHits(String processorName) throws Exception
+    {
+        TabularData caches = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(metricsName(), "VerdictCacheStatistics");
+        CompositeData cache = (CompositeData) caches.get(new Object[] {processorName}).get("value");
+        return (Long) cache.get("hitCount");
+    }
+
+    protected ObjectName metricsName() throws Exception
+    {
+        return new ObjectName("org.mule.modules.validation:type=ValidationMetrics,name=options");
+    }
+
+    /**
+     * Run the flow specified by name and return the resulting message
+     *
+     * @param flowName The name of the flow to run
+     */
+    protected MuleMessage runFlow(String flowName) throws Exception
+    {
+        Flow flow = (Flow) AbstractMuleTestCase.muleContext.getRegistry().lookupFlowConstruct(flowName);
+        return flow.process(AbstractMuleTestCase.getTestEvent(null)).getMessage();
+    }
+}
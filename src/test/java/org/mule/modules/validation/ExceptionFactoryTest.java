@@ -0,0 +1,121 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExceptionFactoryTest
+{
+    @Test
+    public void testConstructorResolvedOnce() throws Exception
+    {
+        ExceptionFactory factory = new ExceptionFactory();
+        String className = SimpleException.class.getName();
+        assertFalse(factory.isResolved(className));
+
+        int constructed = SimpleException.constructed;
+        Exception first = factory.create(className, "validate-email", "a", false);
+        assertTrue(factory.isResolved(className));
+        Exception second = factory.create(className, "validate-email", "b", false);
+
+        assertTrue(first instanceof SimpleException);
+        assertNotSame(first, second);
+        assertEquals(constructed + 2, SimpleException.constructed);
+    }
+
+    @Test
+    public void testInvalidExceptionIsPreresolved() throws Exception
+    {
+        assertTrue(new ExceptionFactory().isResolved(InvalidException.class.getName()));
+    }
+
+    @Test
+    public void testDetailedConstructorPreferred() throws Exception
+    {
+        ExceptionFactory factory = new ExceptionFactory();
+
+        DetailedException exception = (DetailedException) factory.create(DetailedException.class.getName(), "validate-domain", "example", true);
+
+        assertEquals("validate-domain", exception.processorName);
+        assertEquals("example", exception.value);
+        assertFalse(exception.writableStackTrace);
+    }
+
+    @Test
+    public void testRejectsNonException() throws Exception
+    {
+        ExceptionFactory factory = new ExceptionFactory();
+        try
+        {
+            factory.resolve(String.class.getName());
+            fail("String is not an exception");
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertFalse(factory.isResolved(String.class.getName()));
+        }
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void testUnknownClass() throws Exception
+    {
+        new ExceptionFactory().resolve("org.mule.modules.validation.NoSuchException");
+    }
+
+    @Test
+    public void testSimpleConstructorWithoutDetails() throws Exception
+    {
+        Exception exception = new ExceptionFactory().create(SimpleException.class.getName(), "validate-email", "a", true);
+
+        assertNull(exception.getMessage());
+        assertTrue(exception.getStackTrace().length > 0);
+    }
+
+    public static class SimpleException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        static volatile int constructed;
+
+        public SimpleException()
+        {
+            constructed++;
+        }
+    }
+
+    public static class DetailedException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        final String processorName;
+        final Object value;
+        final boolean writableStackTrace;
+
+        public DetailedException()
+        {
+            this(null, null, true);
+        }
+
+        public DetailedException(String processorName, Object value, boolean writableStackTrace)
+        {
+            this.processorName = processorName;
+            this.value = value;
+            this.writableStackTrace = writableStackTrace;
+        }
+    }
+}
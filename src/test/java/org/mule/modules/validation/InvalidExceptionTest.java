@@ -0,0 +1,59 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InvalidExceptionTest
+{
+    @Test
+    public void testStacklessKeepsDetails() throws Exception
+    {
+        InvalidException exception = (InvalidException) new ExceptionFactory().create(InvalidException.class.getName(), "validate-email", "john.doe", true);
+
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("validate-email", exception.getProcessorName());
+        assertEquals("john.doe", exception.getValue());
+        assertEquals("Validation failed in validate-email", exception.getMessage());
+    }
+
+    @Test
+    public void testStacklessAfterFillInStackTrace()
+    {
+        InvalidException exception = new InvalidException("validate-email", "john.doe", false);
+        exception.fillInStackTrace();
+
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    public void testWritableStackTrace() throws Exception
+    {
+        InvalidException exception = (InvalidException) new ExceptionFactory().create(InvalidException.class.getName(), "validate-email", "john.doe", false);
+
+        assertTrue(exception.getStackTrace().length > 0);
+        assertEquals("validate-email", exception.getProcessorName());
+    }
+
+    @Test
+    public void testDefaultConstructor()
+    {
+        InvalidException exception = new InvalidException();
+
+        assertTrue(exception.getStackTrace().length > 0);
+        assertNull(exception.getProcessorName());
+        assertNull(exception.getMessage());
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MembershipListTest
+{
+    private static final int ENTRIES = 100000;
+
+    @Test
+    public void testFindsEveryEntryOfALargeList() throws Exception
+    {
+        File entries = File.createTempFile("accounts", ".txt");
+        File list = File.createTempFile("accounts", ".idx");
+        try
+        {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < ENTRIES; i++)
+            {
+                content.append("ACC-").append(i).append('\n');
+            }
+            write(entries, content.toString());
+            assertEquals(ENTRIES, MembershipListBuilder.build(entries, list, false));
+
+            MembershipList members = new MembershipList(list, 0, TimeUnit.SECONDS);
+            assertEquals(ENTRIES, members.size());
+            for (int i = 0; i < ENTRIES; i++)
+            {
+                assertTrue(members.contains("ACC-" + i));
+            }
+            for (int i = ENTRIES; i < 2 * ENTRIES; i++)
+            {
+                assertFalse(members.contains("ACC-" + i));
+            }
+            assertFalse(members.contains("acc-1"));
+            assertFalse(members.contains(""));
+            assertFalse(members.contains(null));
+        }
+        finally
+        {
+            entries.delete();
+            list.delete();
+        }
+    }
+
+    @Test
+    public void testIgnoresTheCaseOfAsciiLettersOnly() throws Exception
+    {
+        File entries = File.createTempFile("cities", ".txt");
+        File list = File.createTempFile("cities", ".idx");
+        try
+        {
+            write(entries, "Zürich\nMÜNCHEN\nΑθήνα\nKøbenhavn\n");
+            assertEquals(4, MembershipListBuilder.build(entries, list, true));
+
+            MembershipList members = new MembershipList(list, 0, TimeUnit.SECONDS);
+            assertTrue(members.contains("Zürich"));
+            assertTrue(members.contains("zürich"));
+            assertTrue(members.contains("ZüRICH"));
+            assertFalse(members.contains("ZÜRICH"));
+            assertTrue(members.contains("mÜnchen"));
+            assertFalse(members.contains("münchen"));
+            assertTrue(members.contains("Αθήνα"));
+            assertFalse(members.contains("αθήνα"));
+            assertTrue(members.contains("KøBENHAVN"));
+            assertFalse(members.contains("KØBENHAVN"));
+        }
+        finally
+        {
+            entries.delete();
+            list.delete();
+        }
+    }
+
+    @Test
+    public void testSwapsInANewVersionOfTheFile() throws Exception
+    {
+        File entries = File.createTempFile("accounts", ".txt");
+        File list = File.createTempFile("accounts", ".idx");
+        try
+        {
+            write(entries, "ACC-1001\nACC-1002\n");
+            MembershipListBuilder.build(entries, list, false);
+            long modified = list.lastModified();
+            MembershipList members = new MembershipList(list, 1, TimeUnit.MILLISECONDS);
+            assertTrue(members.contains("ACC-1001"));
+            assertFalse(members.contains("ACC-1003"));
+
+            write(entries, "ACC-1002\nACC-1003\nACC-1004\n");
+            MembershipListBuilder.build(entries, list, false);
+            assertTrue(list.setLastModified(modified));
+            Thread.sleep(5);
+            assertTrue("an unchanged modification time keeps the mapping", members.contains("ACC-1001"));
+
+            assertTrue(list.setLastModified(modified + 2000));
+            Thread.sleep(5);
+            assertFalse(members.contains("ACC-1001"));
+            assertTrue(members.contains("ACC-1003"));
+            assertEquals(3, members.size());
+
+            File garbage = File.createTempFile("accounts", ".idx");
+            write(garbage, "not a membership file");
+            assertTrue(garbage.renameTo(list));
+            assertTrue(list.setLastModified(modified + 4000));
+            Thread.sleep(5);
+            assertTrue("an unreadable version is ignored", members.contains("ACC-1003"));
+        }
+        finally
+        {
+            entries.delete();
+            list.delete();
+        }
+    }
+
+    private static void write(File file, String content) throws IOException
+    {
+        FileOutputStream output = new FileOutputStream(file);
+        try
+        {
+            output.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+}
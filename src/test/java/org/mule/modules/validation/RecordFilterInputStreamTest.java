@@ -0,0 +1,127 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RecordFilterInputStreamTest
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testKeepsCrLf() throws Exception
+    {
+        assertEquals("id,name\r\n1,ab\r\n3,cd\r\n", filter("id,name\r\n1,ab\r\n22,abc\r\n3,cd\r\n", 1));
+    }
+
+    @Test
+    public void testKeepsMissingLastTerminator() throws Exception
+    {
+        assertEquals("1,ab\n3,cd", filter("1,ab\n22,abc\n3,cd", 0));
+    }
+
+    @Test
+    public void testKeepsMixedTerminators() throws Exception
+    {
+        assertEquals("1,ab\r3,cd\r\n4,ef\n", filter("1,ab\r22,abc\r\n3,cd\r\n4,ef\n", 0));
+    }
+
+    @Test
+    public void testCrLfSplitAcrossReads() throws Exception
+    {
+        InputStream input = new OneByteInputStream(new ByteArrayInputStream("1,ab\r\n3,cd\r\n".getBytes(UTF8)));
+        RecordRejections rejections = new RecordRejections(10);
+
+        assertEquals("1,ab\r\n3,cd\r\n", read(new RecordFilterInputStream(input, UTF8, plan(), ',', 0, rejections)));
+        assertEquals(0, rejections.getRejectedCount());
+        assertEquals(2, rejections.getRecordCount());
+    }
+
+    @Test
+    public void testLongRecord() throws Exception
+    {
+        char[] field = new char[20000];
+        Arrays.fill(field, 'x');
+        String record = "1," + new String(field) + "\r\n";
+        RecordPlan plan = RecordPlan.compile(Collections.singletonList("0 => length(1,2)"), Collections.<String, Rule>emptyMap(), null, 0);
+
+        InputStream input = new ByteArrayInputStream(record.getBytes(UTF8));
+        assertEquals(record, read(new RecordFilterInputStream(input, UTF8, plan, ',', 0, new RecordRejections(10))));
+    }
+
+    @Test
+    public void testRejectionsKeepRecordWithoutTerminator() throws Exception
+    {
+        RecordRejections rejections = new RecordRejections(10);
+        InputStream input = new ByteArrayInputStream("1,ab\r\n22,abc\r\n".getBytes(UTF8));
+
+        read(new RecordFilterInputStream(input, UTF8, plan(), ',', 0, rejections));
+
+        assertTrue(rejections.isComplete());
+        assertEquals(1, rejections.getRejectedCount());
+        assertEquals("22,abc", rejections.getRejections().get(0).getRecord());
+        assertEquals(2, rejections.getRejections().get(0).getLineNumber());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsWideEncoding()
+    {
+        new RecordFilterInputStream(new ByteArrayInputStream(new byte[0]), Charset.forName("UTF-16"), plan(), ',', 0, new RecordRejections(10));
+    }
+
+    private static String filter(String records, int headerLines) throws IOException
+    {
+        InputStream input = new ByteArrayInputStream(records.getBytes(UTF8));
+        return read(new RecordFilterInputStream(input, UTF8, plan(), ',', headerLines, new RecordRejections(10)));
+    }
+
+    private static RecordPlan plan()
+    {
+        return RecordPlan.compile(Arrays.asList("* => length(1,5)", "0 => length(1,1)"), Collections.<String, Rule>emptyMap(), null, 0);
+    }
+
+    private static String read(InputStream input) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3];
+        for (int count = input.read(buffer); count >= 0; count = input.read(buffer))
+        {
+            output.write(buffer, 0, count);
+        }
+        return new String(output.toByteArray(), UTF8);
+    }
+
+    private static final class OneByteInputStream extends FilterInputStream
+    {
+        private OneByteInputStream(InputStream input)
+        {
+            super(input);
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException
+        {
+            return super.read(bytes, offset, Math.min(length, 1));
+        }
+    }
+}
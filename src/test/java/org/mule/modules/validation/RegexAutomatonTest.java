@@ -0,0 +1,87 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RegexAutomatonTest
+{
+    @Test
+    public void testMatchesLikeJavaRegex() throws Exception
+    {
+        List<String> regexs = Arrays.asList("SKU-\\d{6}", "[A-Z]{3}-\\d{4}-[A-Z]", "(?:ab|a)*c?", "x.*y", "^[a-c]+$");
+        boolean[] compiled = new boolean[regexs.size()];
+        RegexAutomaton automaton = RegexAutomaton.compile(regexs, true, compiled);
+        for (boolean expression : compiled)
+        {
+            assertTrue(expression);
+        }
+
+        String[] values = {"SKU-123456", "SKU-12345", "ABC-1234-Z", "abab", "ababc", "xay", "x", "abc", "", "SKU-12345a"};
+        for (String value : values)
+        {
+            assertEquals(value, firstMatch(regexs, value), automaton.match(value));
+        }
+    }
+
+    @Test
+    public void testFallsBackOnceTheStatesAreSpent() throws Exception
+    {
+        List<String> regexs = Arrays.asList("[ab]*a[ab]{11}", "b+");
+        PatternSet patterns = PatternSet.compile(regexs, true, true);
+        RegexAutomaton automaton = RegexAutomaton.compile(regexs, true, new boolean[regexs.size()]);
+
+        Random random = new Random(42);
+        int undecided = 0;
+        for (int i = 0; i < 5000; i++)
+        {
+            char[] value = new char[12 + random.nextInt(40)];
+            for (int j = 0; j < value.length; j++)
+            {
+                value[j] = random.nextBoolean() ? 'a' : 'b';
+            }
+            String string = new String(value);
+
+            int expected = firstMatch(regexs, string);
+            int matched = automaton.match(string);
+            if (matched == RegexAutomaton.UNDECIDED)
+            {
+                undecided++;
+            }
+            else
+            {
+                assertEquals(string, expected, matched);
+            }
+            assertEquals(string, expected, patterns.match(string, 0));
+        }
+        assertTrue("the expression needs more states than the automaton builds", undecided > 0);
+    }
+
+    private static int firstMatch(List<String> regexs, String value)
+    {
+        for (int i = 0; i < regexs.size(); i++)
+        {
+            if (Pattern.matches(regexs.get(i), value))
+            {
+                return i;
+            }
+        }
+        return PatternSet.NO_MATCH;
+    }
+}
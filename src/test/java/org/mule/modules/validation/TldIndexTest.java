@@ -0,0 +1,125 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TldIndexTest
+{
+    @Test
+    public void testReadsIanaList() throws Exception
+    {
+        TldIndex index = TldIndex.read(new StringReader("# Version 2026101600, Last Updated Fri Oct 16 07:07:01 2026 UTC\n"
+                + "AAA\nCOM\nUK\nXN--P1AI\n\n"));
+
+        assertEquals(4, index.size());
+        assertTrue(contains(index, "aaa"));
+        assertTrue(contains(index, "com"));
+        assertTrue(contains(index, "uk"));
+        assertTrue(contains(index, "xn--p1ai"));
+        assertFalse(contains(index, "version"));
+        assertFalse(contains(index, "#"));
+    }
+
+    @Test
+    public void testReadsPublicSuffixList() throws Exception
+    {
+        TldIndex index = TldIndex.read(new StringReader("// ===BEGIN ICANN DOMAINS===\n"
+                + "// ck : https://en.wikipedia.org/wiki/.ck\n"
+                + "*.ck\n!www.ck\n\n"
+                + "// uk : https://en.wikipedia.org/wiki/.uk\n"
+                + "uk\nac.uk\nco.uk\n"
+                + "com   // with a trailing comment\n"
+                + "香港\n-bad\nbad-\n"));
+
+        assertEquals(2, index.size());
+        assertTrue(contains(index, "uk"));
+        assertTrue(contains(index, "com"));
+        assertFalse(contains(index, "ck"));
+        assertFalse(contains(index, "*.ck"));
+        assertFalse(contains(index, "www.ck"));
+        assertFalse(contains(index, "co.uk"));
+        assertFalse(contains(index, "ac"));
+        assertFalse(contains(index, "香港"));
+        assertFalse(contains(index, "-bad"));
+        assertFalse(contains(index, "bad-"));
+    }
+
+    @Test
+    public void testIgnoresCase() throws Exception
+    {
+        TldIndex index = TldIndex.read(new StringReader("Com\nmuseum\n"));
+
+        assertTrue(contains(index, "COM"));
+        assertTrue(contains(index, "com"));
+        assertTrue(contains(index, "MuSeUm"));
+        assertFalse(contains(index, "co"));
+        assertFalse(contains(index, "comm"));
+        assertFalse(contains(index, ""));
+    }
+
+    @Test
+    public void testLooksUpCharactersInPlace() throws Exception
+    {
+        TldIndex index = TldIndex.read(new StringReader("COM\nORG\n"));
+        String domain = "www.mulesoft.ORG";
+
+        assertTrue(index.contains(domain, 13, domain.length()));
+        assertFalse(index.contains(domain, 12, domain.length()));
+        assertFalse(index.contains(domain, 4, 12));
+    }
+
+    @Test
+    public void testDetectsCountryCodes() throws Exception
+    {
+        TldIndex index = TldIndex.read(new StringReader("COM\nUK\nDE\nXN--P1AI\n"));
+
+        assertTrue(countryCode(index, "uk"));
+        assertTrue(countryCode(index, "DE"));
+        assertFalse(countryCode(index, "com"));
+        assertFalse(countryCode(index, "xn--p1ai"));
+        assertFalse(countryCode(index, "fr"));
+    }
+
+    @Test
+    public void testFindsEveryEntryOfALargeList() throws Exception
+    {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+        {
+            list.append("TLD").append(i).append('\n');
+        }
+        TldIndex index = TldIndex.read(new StringReader(list.toString()));
+
+        assertEquals(2000, index.size());
+        for (int i = 0; i < 2000; i++)
+        {
+            assertTrue(contains(index, "tld" + i));
+        }
+        assertFalse(contains(index, "tld2000"));
+    }
+
+    private static boolean contains(TldIndex index, String value)
+    {
+        return index.contains(value, 0, value.length());
+    }
+
+    private static boolean countryCode(TldIndex index, String value)
+    {
+        return index.containsCountryCode(value, 0, value.length());
+    }
+}
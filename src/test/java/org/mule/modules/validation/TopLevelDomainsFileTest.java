@@ -0,0 +1,131 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.construct.Flow;
+import org.mule.tck.AbstractMuleTestCase;
+import org.mule.tck.FunctionalTestCase;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class TopLevelDomainsFileTest extends FunctionalTestCase
+{
+    @Override
+    protected String getConfigResources()
+    {
+        return "mule-top-level-domains-config.xml";
+    }
+
+    @Test
+    public void testDomains() throws Exception
+    {
+        MuleMessage message = runFlow("testTopLevelDomainsFileDomains");
+
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("domain"));
+        assertEquals(Boolean.FALSE, message.getInvocationProperty("unknownDomain"));
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("topLevelDomain"));
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("countryCode"));
+    }
+
+    @Test
+    public void testEmail() throws Exception
+    {
+        MuleMessage message = runFlow("testTopLevelDomainsFileEmail");
+
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("email"));
+        assertEquals(Boolean.FALSE, message.getInvocationProperty("unknownEmail"));
+        assertEquals(Boolean.TRUE, message.getInvocationProperty("syntax"));
+    }
+
+    @Test
+    public void testRules() throws Exception
+    {
+        ValidationResult result = runFlow("testTopLevelDomainsFileRules").getInvocationProperty("result");
+
+        assertFalse(result.isValid());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(2, result.getFailures().get(0).getIndex());
+        assertEquals(4, result.getFailures().get(1).getIndex());
+    }
+
+    @Test
+    public void testNewListReplacesRememberedVerdicts() throws Exception
+    {
+        File file = File.createTempFile("tlds", ".txt");
+        try
+        {
+            write(file, "COM\n");
+            long modified = file.lastModified();
+
+            ValidationModule module = new ValidationModule();
+            module.setTopLevelDomainsFile(file.getPath());
+            module.setTopLevelDomainsRefreshInterval(1);
+            module.setVerdictCacheMaxSize(64);
+            module.start();
+
+            MuleMessage message = AbstractMuleTestCase.getTestEvent(null).getMessage();
+            module.validateDomain("mulesoft.example", "valid", InvalidException.class.getName(), message);
+            assertEquals(Boolean.FALSE, message.getInvocationProperty("valid"));
+            module.validateEmail("john.doe@mulesoft.example", null, "valid", InvalidException.class.getName(), message);
+            assertEquals(Boolean.FALSE, message.getInvocationProperty("valid"));
+            module.validateAll(Arrays.asList("'mulesoft.example' => domain"), true, "result", InvalidException.class.getName(), message);
+            assertFalse(((ValidationResult) message.getInvocationProperty("result")).isValid());
+
+            write(file, "COM\nEXAMPLE\n");
+            assertTrue(file.setLastModified(modified + 2000));
+            Thread.sleep(1100);
+
+            module.validateDomain("mulesoft.example", "valid", InvalidException.class.getName(), message);
+            assertEquals(Boolean.TRUE, message.getInvocationProperty("valid"));
+            module.validateEmail("john.doe@mulesoft.example", null, "valid", InvalidException.class.getName(), message);
+            assertEquals(Boolean.TRUE, message.getInvocationProperty("valid"));
+            module.validateAll(Arrays.asList("'mulesoft.example' => domain"), true, "result", InvalidException.class.getName(), message);
+            assertTrue(((ValidationResult) message.getInvocationProperty("result")).isValid());
+            module.stop();
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * Run the flow specified by name and return the resulting message
+     *
+     * @param flowName The name of the flow to run
+     */
+    protected MuleMessage runFlow(String flowName) throws Exception
+    {
+        Flow flow = (Flow) AbstractMuleTestCase.muleContext.getRegistry().lookupFlowConstruct(flowName);
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+        return responseEvent.getMessage();
+    }
+
+    private static void write(File file, String content) throws IOException
+    {
+        FileOutputStream output = new FileOutputStream(file);
+        try
+        {
+            output.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TopLevelDomainsTest
+{
+    @Test
+    public void testTopLabelStart() throws Exception
+    {
+        assertEquals(9, topLabelStart("mulesoft.com"));
+        assertEquals(14, topLabelStart("www.mule-soft.co"));
+        assertEquals(4, topLabelStart("123.com"));
+        assertEquals(-1, topLabelStart("a.b-"));
+        assertEquals(-1, topLabelStart("-a.com"));
+        assertEquals(-1, topLabelStart("a-.com"));
+        assertEquals(-1, topLabelStart("1.23"));
+        assertEquals(-1, topLabelStart("a.c"));
+        assertEquals(-1, topLabelStart("com"));
+        assertEquals(-1, topLabelStart("a..com"));
+        assertEquals(-1, topLabelStart(".com"));
+        assertEquals(-1, topLabelStart("a.com."));
+        assertEquals(-1, topLabelStart("a_b.com"));
+        assertEquals(-1, topLabelStart(""));
+        assertEquals(14, TopLevelDomains.topLabelStart("john@mulesoft.com", 5, 17));
+    }
+
+    @Test
+    public void testValidatesAgainstTheFile() throws Exception
+    {
+        File file = File.createTempFile("tlds", ".txt");
+        try
+        {
+            write(file, "# Version 1\nCOM\nEXAMPLE\nUK\n");
+            TopLevelDomains domains = new TopLevelDomains(file, 0, TimeUnit.SECONDS);
+
+            assertEquals(3, domains.size());
+            assertTrue(domains.isValidDomain("mulesoft.example"));
+            assertTrue(domains.isValidDomain("MULESOFT.COM"));
+            assertFalse(domains.isValidDomain("mulesoft.org"));
+            assertFalse(domains.isValidDomain("-mulesoft.com"));
+            assertFalse(domains.isValidDomain(null));
+            assertTrue(domains.isValidTld(".Example"));
+            assertFalse(domains.isValidTld("org"));
+            assertFalse(domains.isValidTld(null));
+            assertTrue(domains.isValidCountryCodeTld("UK"));
+            assertTrue(domains.isValidCountryCodeTld(".uk"));
+            assertFalse(domains.isValidCountryCodeTld("com"));
+            assertFalse(domains.isValidCountryCodeTld(null));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsAnEmptyList() throws Exception
+    {
+        File file = File.createTempFile("tlds", ".txt");
+        try
+        {
+            write(file, "# Version 1\n");
+            new TopLevelDomains(file, 0, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSwapsTheListWhenTheFileChanges() throws Exception
+    {
+        File file = File.createTempFile("tlds", ".txt");
+        try
+        {
+            write(file, "COM\n");
+            long modified = file.lastModified();
+            TopLevelDomains domains = new TopLevelDomains(file, 1, TimeUnit.MILLISECONDS);
+            assertFalse(domains.isValidDomain("mulesoft.example"));
+            assertEquals(0, domains.version());
+
+            write(file, "COM\nEXAMPLE\n");
+            assertTrue(file.setLastModified(modified));
+            Thread.sleep(5);
+            assertFalse("an unchanged modification time keeps the list", domains.isValidDomain("mulesoft.example"));
+
+            assertTrue(file.setLastModified(modified + 2000));
+            Thread.sleep(5);
+            assertTrue(domains.isValidDomain("mulesoft.example"));
+            assertEquals(2, domains.size());
+            assertEquals(1, domains.version());
+
+            write(file, "# Version 3\n");
+            assertTrue(file.setLastModified(modified + 4000));
+            Thread.sleep(5);
+            assertTrue("an empty list is ignored", domains.isValidDomain("mulesoft.example"));
+            assertEquals(1, domains.version());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private static int topLabelStart(String domain)
+    {
+        return TopLevelDomains.topLabelStart(domain, 0, domain.length());
+    }
+
+    private static void write(File file, String content) throws IOException
+    {
+        FileOutputStream output = new FileOutputStream(file);
+        try
+        {
+            output.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.apache.commons.validator.routines.UrlValidator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UrlValidatorsTest
+{
+    @Test
+    public void testSharedPerOptions() throws Exception
+    {
+        UrlValidators validators = new UrlValidators(4);
+
+        UrlValidator defaults = validators.get(false, false, false, false, null);
+        assertSame(defaults, UrlValidators.get(false, false, false, false));
+        assertSame(defaults, validators.get(false, false, false, false, Collections.<String>emptyList()));
+        assertSame(defaults, new UrlValidators(4).get(false, false, false, false, null));
+
+        assertSame(UrlValidators.get(true, false, true, false), UrlValidators.get(true, false, true, false));
+        assertNotSame(defaults, UrlValidators.get(false, false, true, false));
+        assertNotSame(UrlValidators.get(true, false, false, false), UrlValidators.get(false, false, false, true));
+    }
+
+    @Test
+    public void testCustomSchemesCached() throws Exception
+    {
+        UrlValidators validators = new UrlValidators(4);
+        List<String> schemes = new ArrayList<String>(Arrays.asList("sftp", "https"));
+
+        UrlValidator validator = validators.get(false, false, false, false, schemes);
+        schemes.add("ftp");
+        UrlValidator extended = validators.get(false, false, false, false, schemes);
+        UrlValidator again = validators.get(false, false, false, false, Arrays.asList("sftp", "https"));
+        UrlValidator local = validators.get(false, false, true, false, Arrays.asList("sftp", "https"));
+
+        assertSame(validator, again);
+        assertNotSame(validator, extended);
+        assertNotSame(validator, local);
+        assertNotSame(validator, UrlValidators.get(false, false, false, false));
+
+        CacheStatistics statistics = validators.getStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(3, statistics.getMissCount());
+        assertEquals(3, statistics.getSize());
+        assertEquals(4, statistics.getMaxSize());
+    }
+
+    @Test
+    public void testCustomSchemesBounded() throws Exception
+    {
+        UrlValidators validators = new UrlValidators(2);
+        for (int i = 0; i < 10; i++)
+        {
+            validators.get(false, false, false, false, Collections.singletonList("scheme" + i));
+        }
+
+        assertEquals(2, validators.getStatistics().getSize());
+        assertEquals(8, validators.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testFingerprint()
+    {
+        long defaults = UrlValidators.fingerprint(false, false, false, false, null);
+
+        assertEquals(defaults, UrlValidators.fingerprint(false, false, false, false, Collections.<String>emptyList()));
+        assertTrue(defaults != UrlValidators.fingerprint(false, false, true, false, null));
+        assertTrue(defaults != UrlValidators.fingerprint(false, false, false, false, Collections.singletonList("sftp")));
+        assertTrue(UrlValidators.fingerprint(false, false, false, false, Arrays.asList("sftp", "https"))
+                != UrlValidators.fingerprint(false, false, false, false, Arrays.asList("https", "sftp")));
+    }
+}
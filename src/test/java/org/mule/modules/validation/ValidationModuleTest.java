@@ -14,12 +14,32 @@
 package org.mule.modules.validation;
 
 import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
 import org.mule.construct.Flow;
 import org.mule.tck.FunctionalTestCase;
 import org.mule.tck.AbstractMuleTestCase;
+import org.mule.util.IOUtils;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class ValidationModuleTest extends FunctionalTestCase
 {
     @Override
@@ -52,6 +72,47 @@ public class ValidationModuleTest extends FunctionalTestCase
         assertTrue(runFlow("testIsValidCreditCard") instanceof InvalidException);
     }
 
+    @Test
+    public void testCreditCardTypes() throws Exception
+    {
+        Object[][] numbers = {
+                {"4111111111111111", CreditCardType.VISA}, {"4222222222222", CreditCardType.VISA},
+                {"5555555555554444", CreditCardType.MASTERCARD}, {"5105105105105100", CreditCardType.MASTERCARD},
+                {"30569309025904", CreditCardType.DINERS}, {"30950000000000", CreditCardType.DINERS},
+                {"36700102000000", CreditCardType.DINERS}, {"38520000023237", CreditCardType.DINERS},
+                {"39000000000005", CreditCardType.DINERS},
+                {"6011111111111117", CreditCardType.DISCOVER}, {"6445644564456445", CreditCardType.DISCOVER},
+                {"6500000000000002", CreditCardType.DISCOVER},
+                {"378282246310005", CreditCardType.AMEX}, {"371449635398431", CreditCardType.AMEX},
+                {" 4111111111111111 ", CreditCardType.VISA},
+                {"4111111111111112", null}, {"411111111111111", null}, {"41111111111111111111", null},
+                {"5655555555554444", null}, {"5005555555554444", null}, {"30669309025904", null},
+                {"6012111111111117", null}, {"6431111111111111", null}, {"361449635398431", null},
+                {"4111-1111-1111-1111", null}, {"4111111111111111a", null}, {"", null}, {" ", null}
+        };
+
+        for (boolean fastCreditCardCheck : new boolean[] {false, true})
+        {
+            ValidationModule module = new ValidationModule();
+            module.setFastCreditCardCheck(fastCreditCardCheck);
+            module.start();
+
+            MuleMessage message = AbstractMuleTestCase.getTestEvent(null).getMessage();
+            for (Object[] number : numbers)
+            {
+                for (CreditCardType type : CreditCardType.values())
+                {
+                    module.validateCreditCardNumber((String) number[0], Collections.singletonList(type), "valid", InvalidException.class.getName(), message);
+                    assertEquals("'" + number[0] + "' as " + type + (fastCreditCardCheck ? " with" : " without") + " the fast check",
+                            type == number[1], message.getInvocationProperty("valid"));
+                }
+                module.validateCreditCardNumber((String) number[0], Arrays.asList(CreditCardType.values()), "valid", InvalidException.class.getName(), message);
+                assertEquals(number[1] != null, message.getInvocationProperty("valid"));
+            }
+            module.stop();
+        }
+    }
+
     @Test
     public void testIsValidEmail() throws Exception
     {
@@ -64,6 +125,12 @@ public class ValidationModuleTest extends FunctionalTestCase
         assertTrue(runFlow("testIsValidIpAddress") instanceof InvalidException);
     }
 
+    @Test
+    public void testIsValidIpAddressPrivate() throws Exception
+    {
+        assertTrue(runFlow("testIsValidIpAddressPrivate") instanceof InvalidException);
+    }
+
     @Test
     public void testIsValidPercentage() throws Exception
     {
@@ -94,6 +161,337 @@ public class ValidationModuleTest extends FunctionalTestCase
         assertTrue(runFlow("testIsValidLength") instanceof InvalidException);
     }
 
+    @Test
+    public void testIsNotEmpty() throws Exception
+    {
+        assertTrue(runFlow("testIsNotEmpty") instanceof InvalidException);
+    }
+
+    @Test
+    public void testIsValidAll() throws Exception
+    {
+        assertTrue(runFlow("testIsValidAll") instanceof InvalidException);
+    }
+
+    @Test
+    public void testValidateAllResult() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testValidateAllResult");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        ValidationResult result = responseEvent.getMessage().getInvocationProperty("result");
+        assertFalse(result.isValid());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(0, result.getFailures().get(0).getIndex());
+        assertEquals(2, result.getFailures().get(1).getIndex());
+    }
+
+    @Test
+    public void testIsoDate() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testIsoDate");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("timestamp"));
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("leapDay"));
+        assertEquals(Boolean.FALSE, responseEvent.getMessage().getInvocationProperty("invalidDay"));
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("time"));
+    }
+
+    @Test
+    public void testUrlSchemes() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testUrlSchemes");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("sftp"));
+        assertEquals(Boolean.FALSE, responseEvent.getMessage().getInvocationProperty("http"));
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("defaultSchemes"));
+    }
+
+    @Test
+    public void testCheckDigit() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testCheckDigit");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("iban"));
+        assertEquals(Boolean.FALSE, responseEvent.getMessage().getInvocationProperty("invalidIban"));
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("ean"));
+        assertEquals(Boolean.FALSE, responseEvent.getMessage().getInvocationProperty("invalidEan"));
+    }
+
+    @Test
+    public void testConvertToLong() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testConvertToLong");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        assertEquals(42L, responseEvent.getMessage().getPayload());
+    }
+
+    @Test
+    public void testConvertToLongOutOfRange() throws Exception
+    {
+        assertTrue(runFlow("testConvertToLongOutOfRange") instanceof InvalidException);
+    }
+
+    @Test
+    public void testConvertToDateVariable() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testConvertToDateVariable");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent("2010-07-04"));
+
+        assertEquals("2010-07-04", responseEvent.getMessage().getPayload());
+        Date date = responseEvent.getMessage().getInvocationProperty("date");
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd").parse("2010-07-04"), date);
+    }
+
+    @Test
+    public void testValidateFields() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testValidateFields");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        ValidationResult result = responseEvent.getMessage().getInvocationProperty("result");
+        assertFalse(result.isValid());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(0, result.getFailures().get(0).getIndex());
+        assertEquals(2, result.getFailures().get(1).getIndex());
+    }
+
+    @Test
+    public void testValidateAllAsync() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testValidateAllAsync");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        ValidationResult result = responseEvent.getMessage().getInvocationProperty("result");
+        assertFalse(result.isValid());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(0, result.getFailures().get(0).getIndex());
+        assertEquals(2, result.getFailures().get(1).getIndex());
+    }
+
+    @Test
+    public void testAwaitValidationCancelsOnTimeout() throws Exception
+    {
+        FutureTask<ValidationResult> pending = new FutureTask<ValidationResult>(new Callable<ValidationResult>()
+        {
+            @Override
+            public ValidationResult call()
+            {
+                return ValidationResult.valid();
+            }
+        });
+        MuleMessage message = AbstractMuleTestCase.getTestEvent(null).getMessage();
+        message.setInvocationProperty("pending", pending);
+
+        try
+        {
+            new ValidationModule().awaitValidation("pending", 10, null, InvalidException.class.getName(), message);
+            fail("the validation never runs");
+        }
+        catch (TimeoutException e)
+        {
+            assertTrue(pending.isCancelled());
+        }
+    }
+
+    @Test
+    public void testStopCancelsQueuedAsyncValidations() throws Exception
+    {
+        ValidationModule module = new ValidationModule();
+        module.setAsyncParallelism(1);
+        module.setAsyncQueueSize(1);
+        module.start();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> rules = Arrays.asList("flowVars.value => length(1,1)");
+        MuleMessage running = AbstractMuleTestCase.getTestEvent(null).getMessage();
+        running.setInvocationProperty("value", new BlockingValue(started, release));
+        module.validateAllAsync(rules, true, "pending", running);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        MuleMessage queued = AbstractMuleTestCase.getTestEvent(null).getMessage();
+        queued.setInvocationProperty("value", "x");
+        module.validateAllAsync(rules, true, "pending", queued);
+
+        module.stop();
+        release.countDown();
+        try
+        {
+            module.awaitValidation("pending", 30000, "result", InvalidException.class.getName(), queued);
+            fail("the queued validation is cancelled by the stop");
+        }
+        catch (IllegalStateException e)
+        {
+            assertTrue(((Future<?>) queued.getInvocationProperty("pending")).isCancelled());
+        }
+        module.awaitValidation("pending", 5000, "result", InvalidException.class.getName(), running);
+        assertTrue(((ValidationResult) running.getInvocationProperty("result")).isValid());
+
+        MuleMessage stopped = AbstractMuleTestCase.getTestEvent(null).getMessage();
+        stopped.setInvocationProperty("value", "xx");
+        module.validateAllAsync(rules, true, "pending", stopped);
+        assertTrue(((Future<?>) stopped.getInvocationProperty("pending")).isDone());
+        module.awaitValidation("pending", 0, "result", InvalidException.class.getName(), stopped);
+        assertFalse(((ValidationResult) stopped.getInvocationProperty("result")).isValid());
+    }
+
+    @Test
+    public void testValidateCollection() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testValidateCollection");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        ValidationResult result = responseEvent.getMessage().getInvocationProperty("result");
+        assertEquals(1, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+    }
+
+    @Test
+    public void testStopWhileValidatingCollection() throws Exception
+    {
+        final ValidationModule module = new ValidationModule();
+        module.setCollectionParallelism(2);
+        module.setCollectionChunkSize(1);
+        module.start();
+
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        final List<Object> elements = new ArrayList<Object>();
+        for (int i = 0; i < 6; i++)
+        {
+            elements.add(new BlockingValue(started, release));
+        }
+        final MuleMessage message = AbstractMuleTestCase.getTestEvent(null).getMessage();
+        final AtomicReference<Object> outcome = new AtomicReference<Object>();
+        Thread validation = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    module.validateCollection(elements, "length(1,1)", null, "result", InvalidException.class.getName(), message);
+                    outcome.set(message.getInvocationProperty("result"));
+                }
+                catch (Exception e)
+                {
+                    outcome.set(e);
+                }
+            }
+        };
+        validation.start();
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        module.stop();
+        release.countDown();
+        validation.join(5000);
+        assertFalse("the chunks cancelled by the stop are validated by the flow thread", validation.isAlive());
+        assertTrue(((ValidationResult) outcome.get()).isValid());
+
+        module.validateCollection(elements, "length(1,1)", null, "result", InvalidException.class.getName(), message);
+        assertTrue(((ValidationResult) message.getInvocationProperty("result")).isValid());
+    }
+
+    @Test
+    public void testValidateRecords() throws Exception
+    {
+        String records = "id,email\n1,john.doe@mulesoft.com\n-2,jane.doe@mulesoft.com\n3,john.xx@.com\n4,jane.doe@mulesoft.com\n";
+
+        Flow flow = lookupFlowConstruct("testValidateRecords");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(new ByteArrayInputStream(records.getBytes("UTF-8"))));
+
+        String validRecords = IOUtils.toString((InputStream) responseEvent.getMessage().getPayload(), "UTF-8");
+        assertEquals("id,email\n1,john.doe@mulesoft.com\n4,jane.doe@mulesoft.com\n", validRecords);
+
+        RecordRejections rejections = responseEvent.getMessage().getInvocationProperty("rejections");
+        assertTrue(rejections.isComplete());
+        assertEquals(2, rejections.getRejectedCount());
+        assertEquals(3, rejections.getRejections().get(0).getLineNumber());
+        assertEquals(4, rejections.getRejections().get(1).getLineNumber());
+    }
+
+    @Test
+    public void testCombinedRegex() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testCombinedRegex");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        assertEquals(Integer.valueOf(1), responseEvent.getMessage().getInvocationProperty("matchedRegex"));
+    }
+
+    @Test
+    public void testVerdictVariable() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testVerdictVariable");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        assertEquals(Boolean.FALSE, responseEvent.getMessage().getInvocationProperty("emailValid"));
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("lengthValid"));
+    }
+
+    @Test
+    public void testEmailStrictness() throws Exception
+    {
+        Flow flow = lookupFlowConstruct("testEmailStrictness");
+        MuleEvent responseEvent = flow.process(AbstractMuleTestCase.getTestEvent(null));
+
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("syntaxValid"));
+        assertEquals(Boolean.FALSE, responseEvent.getMessage().getInvocationProperty("topLevelDomainValid"));
+        assertEquals(Boolean.TRUE, responseEvent.getMessage().getInvocationProperty("quotedValid"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrecompiledRule() throws Exception
+    {
+        ValidationModule module = new ValidationModule();
+        module.setPrecompiledRules(Arrays.asList("length(8"));
+        module.start();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeVerdictCacheTtl() throws Exception
+    {
+        ValidationModule module = new ValidationModule();
+        module.setVerdictCacheTtl(-1);
+        module.start();
+    }
+
+    @Test
+    public void testValidateMembership() throws Exception
+    {
+        File entries = File.createTempFile("accounts", ".txt");
+        File list = File.createTempFile("accounts", ".idx");
+        try
+        {
+            FileOutputStream output = new FileOutputStream(entries);
+            output.write("# accounts\nACC-1001\nACC-1002\n".getBytes("UTF-8"));
+            output.close();
+            assertEquals(2, MembershipListBuilder.build(entries, list, true));
+
+            ValidationModule module = new ValidationModule();
+            module.setMembershipLists(Collections.singletonMap("accounts", list.getPath()));
+            module.start();
+
+            MuleMessage message = AbstractMuleTestCase.getTestEvent(null).getMessage();
+            module.validateMembership("acc-1002", "accounts", false, "member", InvalidException.class.getName(), message);
+            assertEquals(Boolean.TRUE, message.getInvocationProperty("member"));
+            module.validateMembership("ACC-1003", "accounts", false, "member", InvalidException.class.getName(), message);
+            assertEquals(Boolean.FALSE, message.getInvocationProperty("member"));
+            module.validateMembership("ACC-1001", "accounts", true, "allowed", InvalidException.class.getName(), message);
+            assertEquals(Boolean.FALSE, message.getInvocationProperty("allowed"));
+            module.stop();
+        }
+        finally
+        {
+            entries.delete();
+            list.delete();
+        }
+    }
 
     /**
     * Run the flow specified by name and assert equality on the expected output
@@ -124,4 +522,42 @@ public class ValidationModuleTest extends FunctionalTestCase
     {
         return (Flow) AbstractMuleTestCase.muleContext.getRegistry().lookupFlowConstruct(name);
     }
+
+    /**
+     * A value whose string representation is only available once released, to hold a validation in progress
+     */
+    protected static class BlockingValue
+    {
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        public BlockingValue(CountDownLatch started, CountDownLatch release)
+        {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public String toString()
+        {
+            started.countDown();
+            boolean interrupted = false;
+            while (release.getCount() > 0)
+            {
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return "x";
+        }
+    }
 }
@@ -0,0 +1,182 @@
+/**
+ * Mule Validation Module
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.validation;
+
+import org.apache.commons.validator.routines.DateValidator;
+import org.apache.commons.validator.routines.DoubleValidator;
+import org.apache.commons.validator.routines.FloatValidator;
+import org.apache.commons.validator.routines.IntegerValidator;
+import org.apache.commons.validator.routines.LongValidator;
+import org.apache.commons.validator.routines.TimeValidator;
+import org.junit.Test;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that the parsers accept and reject exactly what the commons validators they replace do.
+ */
+public class ValueParsersTest
+{
+    private static final String[] NUMBERS = {
+            "0", "42", "-42", "0042", "1,000", "1,000,000", "1,00", "1000,", "-0", "-0.0", "5.0", "5.", ".5", "-.5",
+            "1.5", "-1.25", "1,234.5", "1.000", "1.234,5", "1 000", "+5", "5-", "--5", "-", ".", "abc", "12a", "1e3",
+            " 42", "42 ", "\t42\n", "", "   ", null,
+            "2147483647", "2147483648", "-2147483648", "-2147483649",
+            "999999999999999999", "-999999999999999999", "1000000000000000000",
+            "9223372036854775807", "9223372036854775808", "-9223372036854775808", "-9223372036854775809",
+            "12345678901234567890", "0.000000000000000000000000000000000000000000001",
+            "340282350000000000000000000000000000000", "340282360000000000000000000000000000000",
+            "1000000000000000000000000000000000000000", "0.1", "0.30000000000000004", "123456789.123456789"
+    };
+
+    private static final Locale[] LOCALES = {Locale.US, Locale.UK, Locale.GERMANY, Locale.FRANCE, Locale.ITALY, Locale.CANADA_FRENCH, Locale.JAPAN};
+
+    private static final String[] NUMBER_PATTERNS = {null, "", "#,##0", "#,##0.00", "#,##0.##", "0.###E0", "#%"};
+
+    @Test
+    public void testLongLikeCommons()
+    {
+        for (Locale locale : LOCALES)
+        {
+            for (String pattern : NUMBER_PATTERNS)
+            {
+                for (String number : NUMBERS)
+                {
+                    assertEquals(describe(number, pattern, locale), LongValidator.getInstance().validate(number, pattern, locale.getJavaLocale()), ValueParsers.parseLong(number, pattern, locale));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIntegerLikeCommons()
+    {
+        for (Locale locale : LOCALES)
+        {
+            for (String pattern : NUMBER_PATTERNS)
+            {
+                for (String number : NUMBERS)
+                {
+                    assertEquals(describe(number, pattern, locale), IntegerValidator.getInstance().validate(number, pattern, locale.getJavaLocale()), ValueParsers.parseInteger(number, pattern, locale));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFloatLikeCommons()
+    {
+        for (Locale locale : LOCALES)
+        {
+            for (String pattern : NUMBER_PATTERNS)
+            {
+                for (String number : NUMBERS)
+                {
+                    assertEquals(describe(number, pattern, locale), FloatValidator.getInstance().validate(number, pattern, locale.getJavaLocale()), ValueParsers.parseFloat(number, pattern, locale));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDoubleLikeCommons()
+    {
+        for (Locale locale : LOCALES)
+        {
+            for (String pattern : NUMBER_PATTERNS)
+            {
+                for (String number : NUMBERS)
+                {
+                    assertEquals(describe(number, pattern, locale), DoubleValidator.getInstance().validate(number, pattern, locale.getJavaLocale()), ValueParsers.parseDouble(number, pattern, locale));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUsNumbers()
+    {
+        assertEquals(Long.valueOf(1000), ValueParsers.parseLong("1,000", null, Locale.US));
+        assertEquals(Long.valueOf(42), ValueParsers.parseLong(" 42 ", null, Locale.US));
+        assertEquals(Long.valueOf(0), ValueParsers.parseLong("-0", null, Locale.US));
+        assertNull(ValueParsers.parseLong("5.0", null, Locale.US));
+        assertNull(ValueParsers.parseLong("9223372036854775808", null, Locale.US));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), ValueParsers.parseLong("9223372036854775807", null, Locale.US));
+        assertEquals(Integer.valueOf(0), ValueParsers.parseInteger("-0", null, Locale.US));
+        assertNull(ValueParsers.parseInteger("2147483648", null, Locale.US));
+        assertEquals(Double.valueOf(-0.0), ValueParsers.parseDouble("-0", null, Locale.US));
+        assertNull(ValueParsers.parseFloat("0.000000000000000000000000000000000000000000001", null, Locale.US));
+        assertNull(ValueParsers.parseFloat("1000000000000000000000000000000000000000", null, Locale.US));
+    }
+
+    @Test
+    public void testDatesLikeCommons()
+    {
+        String[] dates = {
+                "04/13/10", "4/13/10", "13/04/10", "13/04/2010", "13.04.10", "13.04.2010", "2010/04/13", "10/04/13",
+                "2010-04-13", "2010-02-30", "02/30/10", "13 avril 2010", "13 April 2010", "13. April 2010",
+                " 04/13/10 ", "04/13/10x", "", null
+        };
+        String[] patterns = {null, "yyyy-MM-dd", "dd/MM/yyyy", "dd MMMM yyyy", "d. MMMM yyyy"};
+
+        for (Locale locale : LOCALES)
+        {
+            for (String pattern : patterns)
+            {
+                for (String date : dates)
+                {
+                    assertEquals(describe(date, pattern, locale), DateValidator.getInstance().validate(date, pattern, locale.getJavaLocale()), ValueParsers.parseDate(date, pattern, locale));
+                    assertEquals(describe(date, pattern, locale), DateValidator.getInstance().isValid(date, pattern, locale.getJavaLocale()), ValueParsers.isValidDate(date, pattern, locale));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTimesLikeCommons()
+    {
+        String[] times = {"6:34 PM", "6:34PM", "18:34", "18.34", "18:34:05", "25:00", "6:34", " 18:34 ", "", null};
+        String[] patterns = {null, "HH:mm", "HH:mm:ss", "h:mm a"};
+
+        for (Locale locale : LOCALES)
+        {
+            for (String pattern : patterns)
+            {
+                for (String time : times)
+                {
+                    Calendar expected = TimeValidator.getInstance().validate(time, pattern, locale.getJavaLocale());
+                    assertEquals(describe(time, pattern, locale), expected == null ? null : expected.getTime(), ValueParsers.parseTime(time, pattern, locale));
+                    assertEquals(describe(time, pattern, locale), TimeValidator.getInstance().isValid(time, pattern, locale.getJavaLocale()), ValueParsers.isValidTime(time, pattern, locale));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPatternFormatsBounded()
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            ValueParsers.parseLong("42", "0' units #" + i + "'", Locale.US);
+        }
+
+        assertEquals(32, ValueParsers.cachedPatternCount());
+        assertEquals(Long.valueOf(42), ValueParsers.parseLong("42 units #5", "0' units #5'", Locale.US));
+    }
+
+    private static String describe(String value, String pattern, Locale locale)
+    {
+        return "'" + value + "' with pattern '" + pattern + "' in " + locale;
+    }
+}